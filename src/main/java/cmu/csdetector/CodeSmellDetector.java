@@ -2,12 +2,16 @@ package cmu.csdetector;
 
 import cmu.csdetector.console.ToolParameters;
 import cmu.csdetector.console.output.ObservableExclusionStrategy;
-import cmu.csdetector.extractor.Extractor;
+import cmu.csdetector.extractor.ExtractionCache;
+import cmu.csdetector.extractor.ExtractionJob;
+import cmu.csdetector.extractor.ExtractionScheduler;
 import cmu.csdetector.metrics.MethodMetricValueCollector;
 import cmu.csdetector.metrics.TypeMetricValueCollector;
 import cmu.csdetector.resources.Method;
 import cmu.csdetector.resources.Type;
 import cmu.csdetector.resources.loader.JavaFilesFinder;
+import cmu.csdetector.resources.loader.ProjectSnapshotReader;
+import cmu.csdetector.resources.loader.ProjectSnapshotWriter;
 import cmu.csdetector.resources.loader.SourceFile;
 import cmu.csdetector.resources.loader.SourceFilesLoader;
 import cmu.csdetector.smells.ClassLevelSmellDetector;
@@ -47,28 +51,26 @@ public class CodeSmellDetector {
         }
 
         System.out.println(new Date());
-        List<String> sourcePaths = List.of(parameters.getValue(ToolParameters.SOURCE_FOLDER));
-        List<Type> allTypes = this.loadAllTypes(sourcePaths);
+        List<Type> allTypes;
+        if (parameters.shouldLoadSnapshot()) {
+            allTypes = this.loadSnapshot(new File(parameters.getValue(ToolParameters.FROM_SNAPSHOT)));
+        } else {
+            List<String> sourcePaths = List.of(parameters.getValue(ToolParameters.SOURCE_FOLDER));
+            allTypes = this.loadAllTypes(sourcePaths);
 
-        collectTypeMetrics(allTypes);
+            collectTypeMetrics(allTypes);
+
+            if (parameters.shouldSaveSnapshot()) {
+                this.saveSnapshot(allTypes, new File(parameters.getValue(ToolParameters.SNAPSHOT_FILE)));
+            }
+        }
 
         detectSmells(allTypes);
 
-        // apply Extractor on all smells
-        allTypes.forEach(type -> {
-            // method-level smells
-            type.getMethods().forEach(method -> {
-                method.getSmells().forEach(smell -> {
-                    Extractor extractor = new Extractor(smell.getResource(), type);
-                    extractor.extract();
-                });
-            });
-            // class-level smells
-            type.getSmells().forEach(smell -> {
-                Extractor extractor = new Extractor(smell.getResource());
-                extractor.extract();
-            });
-        });
+        // snapshots carry no ASTs, so there is nothing to extract from
+        if (!parameters.shouldLoadSnapshot()) {
+            this.extractOpportunities(allTypes);
+        }
 
         saveSmellsFile(allTypes);
 
@@ -76,6 +78,39 @@ public class CodeSmellDetector {
 
     }
 
+    private void extractOpportunities(List<Type> allTypes) throws IOException {
+        // apply Extractor on all smelly resources, once per resource whatever the number of its smells
+        List<ExtractionJob> jobs = ExtractionJob.createJobs(allTypes);
+
+        ExtractionCache cache = ExtractionCache.getInstance();
+        if (ToolParameters.getInstance().shouldUseExtractionCache()) {
+            cache.open(new File(ToolParameters.getInstance().getValue(ToolParameters.EXTRACTION_CACHE)));
+        }
+
+        ExtractionScheduler scheduler = this.createScheduler();
+        int smells = jobs.stream().mapToInt(job -> job.getSmells().size()).sum();
+        System.out.println(String.format("Extracting opportunities of %d resources (%d smells) on %d threads...", jobs.size(), smells, scheduler.getParallelism()));
+        int[] finished = {0};
+        scheduler.run(jobs, job -> {
+            finished[0]++;
+            System.out.println(String.format("[%d/%d] %d opportunities extracted from %s", finished[0], jobs.size(),
+                    job.getResource().getExtractedMethods().size(), job.getResource().getFullyQualifiedName()));
+        });
+
+        if (cache.isEnabled()) {
+            System.out.println(String.format("%d of %d resources taken from the extraction cache", cache.getHits(), jobs.size()));
+            cache.save();
+        }
+    }
+
+    private ExtractionScheduler createScheduler() {
+        String threads = ToolParameters.getInstance().getValue(ToolParameters.THREADS);
+        if (threads == null) {
+            return new ExtractionScheduler();
+        }
+        return new ExtractionScheduler(Integer.parseInt(threads));
+    }
+
     private void detectSmells(List<Type> allTypes) {
         for (Type type : allTypes) {
             // It is important to detect certain smells at method level first, such as Brain Method
@@ -106,6 +141,23 @@ public class CodeSmellDetector {
         return allTypes;
     }
 
+    private List<Type> loadSnapshot(File snapshotFile) throws IOException {
+        System.out.println("Loading project snapshot...");
+        List<Type> allTypes = new ArrayList<>();
+
+        ProjectSnapshotReader reader = new ProjectSnapshotReader(snapshotFile);
+        for (SourceFile sourceFile : reader.getLoadedSourceFiles()) {
+            allTypes.addAll(sourceFile.getTypes());
+        }
+        return allTypes;
+    }
+
+    private void saveSnapshot(List<Type> allTypes, File snapshotFile) throws IOException {
+        System.out.println("Saving project snapshot...");
+        ProjectSnapshotWriter writer = new ProjectSnapshotWriter(snapshotFile);
+        writer.write(allTypes);
+    }
+
     private void collectTypeMetrics(List<Type> types) {
         for (Type type : types) {
             TypeMetricValueCollector typeCollector = new TypeMetricValueCollector();
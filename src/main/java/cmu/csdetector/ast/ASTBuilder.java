@@ -9,6 +9,12 @@ import java.util.Map;
 
 public class ASTBuilder {
 
+    /**
+     * The ASTs parsed together share their binding tables, which are filled lazily and are not thread-safe.
+     * Code resolving bindings of the project ASTs from several threads holds this lock.
+     */
+    public static final Object BINDING_LOCK = new Object();
+
     private Map<String, String> options;
 
     private String[] sourcePaths;
@@ -8,6 +8,14 @@ public class ToolParameters {
     public static final String SMELLS_FILE = "smells-file";
     public static final String IGNORE_TESTS = "ignore-tests";
     public static final String ONLY_SMELLY = "only-smelly";
+    public static final String SNAPSHOT_FILE = "snapshot-file";
+    public static final String FROM_SNAPSHOT = "from-snapshot";
+    public static final String THREADS = "threads";
+    public static final String CANDIDATES = "candidates";
+    public static final String TOP = "top";
+    public static final String BUDGET = "budget";
+    public static final String EXTRACTION_CACHE = "extraction-cache";
+    public static final String DEBUG = "debug";
 
     private Options options;
 
@@ -32,6 +40,25 @@ public class ToolParameters {
         return line.hasOption(ONLY_SMELLY);
     }
 
+    public boolean shouldSaveSnapshot() {
+        return line.hasOption(SNAPSHOT_FILE);
+    }
+
+    public boolean shouldLoadSnapshot() {
+        return line.hasOption(FROM_SNAPSHOT);
+    }
+
+    public boolean shouldUseExtractionCache() {
+        return line.hasOption(EXTRACTION_CACHE);
+    }
+
+    /**
+     * Whether the extraction steps are traced on the standard output, false when no command line was parsed
+     */
+    public boolean shouldDebug() {
+        return this.line != null && this.line.hasOption(DEBUG);
+    }
+
     private void createOptions() {
         Option smellsFile = Option.builder("sf")
                 .longOpt(SMELLS_FILE)
@@ -44,7 +71,6 @@ public class ToolParameters {
         Option sourceFolder = Option.builder("src")
                 .longOpt(SOURCE_FOLDER)
                 .desc("Folder containing all Java files to be analyzed")
-                .required()
                 .hasArg()
                 .argName("folder")
                 .build();
@@ -59,16 +85,93 @@ public class ToolParameters {
                 .desc("If this flag is used, only classes and methods containing code smells will be part of the output")
                 .build();
 
+        Option snapshotFile = Option.builder("snap")
+                .longOpt(SNAPSHOT_FILE)
+                .desc("File where a binary snapshot of the project will be saved after loading and metric collection")
+                .hasArg()
+                .argName("file")
+                .build();
+
+        Option fromSnapshot = Option.builder("fs")
+                .longOpt(FROM_SNAPSHOT)
+                .desc("Load the project from a snapshot instead of parsing a source folder. Smells are detected again, but no opportunity is extracted")
+                .hasArg()
+                .argName("file")
+                .build();
+
+        Option threads = Option.builder("t")
+                .longOpt(THREADS)
+                .desc("Number of threads extracting opportunities, the number of processors by default")
+                .hasArg()
+                .argName("count")
+                .build();
+
+        Option candidates = Option.builder("c")
+                .longOpt(CANDIDATES)
+                .desc("Maximum number of classes, among the ones an opportunity references the most, evaluated as its target (5 by default)")
+                .hasArg()
+                .argName("count")
+                .build();
+
+        Option top = Option.builder("k")
+                .longOpt(TOP)
+                .desc("Only create the given number of opportunities per smelly resource, searched best benefit first, instead of all of them")
+                .hasArg()
+                .argName("count")
+                .build();
+
+        Option budget = Option.builder("b")
+                .longOpt(BUDGET)
+                .desc("Maximum number of sequences considered per method, the ones of best benefit, no limit by default")
+                .hasArg()
+                .argName("count")
+                .build();
+
+        Option extractionCache = Option.builder("ec")
+                .longOpt(EXTRACTION_CACHE)
+                .desc("File keeping the extracted opportunities across runs, so the unchanged smelly resources are not extracted again")
+                .hasArg()
+                .argName("file")
+                .build();
+
+        Option debug = Option.builder("d")
+                .longOpt(DEBUG)
+                .desc("Print the tables and evaluations of every extraction. The extractions run in parallel, so use it with -t 1 to keep their traces apart")
+                .build();
+
+        // the project is either parsed from the sources or restored from a snapshot
+        OptionGroup input = new OptionGroup();
+        input.addOption(sourceFolder);
+        input.addOption(fromSnapshot);
+        input.setRequired(true);
+
         options.addOption(smellsFile);
-        options.addOption(sourceFolder);
+        options.addOptionGroup(input);
         options.addOption(ignoreTests);
         options.addOption(ignoreNonSmelly);
+        options.addOption(snapshotFile);
+        options.addOption(threads);
+        options.addOption(candidates);
+        options.addOption(top);
+        options.addOption(budget);
+        options.addOption(extractionCache);
+        options.addOption(debug);
     }
 
     public String getValue(String key) {
         return this.line.getOptionValue(key);
     }
 
+    /**
+     * Value of an integer option, or the given default when the option is not set or no command line was parsed
+     */
+    public int getIntValue(String key, int defaultValue) {
+        if (this.line == null || !this.line.hasOption(key)) {
+            return defaultValue;
+        }
+        return Integer.parseInt(this.line.getOptionValue(key));
+    }
+
     public void parse(String[] args) throws ParseException {
         CommandLineParser parser = new DefaultParser();
         this.line = parser.parse(getOptions(), args);
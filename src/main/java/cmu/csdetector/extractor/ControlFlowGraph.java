@@ -0,0 +1,595 @@
+package cmu.csdetector.extractor;
+
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.*;
+
+/**
+ * Statement level control flow graph of a method, for the data flow analyses of {@link MethodDataFlow}.
+ *
+ * A node stands for a simple statement or for the header of a compound one (the condition of an if or a loop, the
+ * updaters of a for, a case label, a catch clause...), and records the local variables it reads and writes.
+ * Expressions are not split, and lambdas and anonymous classes only read the variables they capture.
+ * Nodes are numbered in source order while the statements are walked, so the nodes of any statement, and then of any
+ * statement sequence, are a range of numbers. Node 0 is the entry, defining the parameters, and the last node is the exit.
+ *
+ * Only the local variables and parameters declared by the method itself are tracked: fields are reachable from the
+ * extracted method anyway.
+ */
+public class ControlFlowGraph {
+
+    public static final int USE = 1;
+
+    public static final int DEF = 2;
+
+    private final MethodDeclaration method;
+
+    /**
+     * The tracked variables, the index of a variable being its bit in the bitsets of the analyses
+     */
+    private final List<IVariableBinding> variables = new ArrayList<>();
+
+    private final Map<String, Integer> variableIndexes = new HashMap<>();
+
+    /**
+     * The position of the name declaring each tracked variable
+     */
+    private final List<Integer> declarationPositions = new ArrayList<>();
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * The range [first, end) of the nodes of every statement of the method
+     */
+    private final Map<Statement, int[]> statementNodes = new IdentityHashMap<>();
+
+    private final int entry;
+
+    private final int exit;
+
+    /**
+     * Nodes jumping to the exit of the method (returns and throws), connected once the exit exists
+     */
+    private final List<Integer> toExit = new ArrayList<>();
+
+    /**
+     * The return statements, the other nodes jumping to the exit being throws
+     */
+    private final Set<Integer> returns = new HashSet<>();
+
+    /**
+     * The statement each break or continue jumps out of
+     */
+    private final Map<Integer, Statement> jumps = new HashMap<>();
+
+    /**
+     * Innermost last: the statements that a break or a continue may jump out of
+     */
+    private final Deque<JumpTarget> targets = new ArrayDeque<>();
+
+    public ControlFlowGraph(MethodDeclaration method) {
+        this.method = method;
+        this.collectVariables();
+
+        this.entry = this.newNode();
+        for (Object parameter : method.parameters()) {
+            this.addReference(entry, ((SingleVariableDeclaration) parameter).getName(), DEF);
+        }
+        List<Integer> exits = Collections.singletonList(entry);
+        if (method.getBody() != null) {
+            exits = this.build(method.getBody(), exits);
+        }
+        this.exit = this.newNode();
+        this.connect(exits, exit);
+        this.connect(toExit, exit);
+        for (int node : toExit) {
+            if (!returns.contains(node)) {
+                nodes.get(node).exceptionalSuccessors.add(exit);
+            }
+        }
+    }
+
+    /**
+     * Variables declared by the method, out of its lambdas and local or anonymous classes
+     */
+    private void collectVariables() {
+        method.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(LambdaExpression node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(AnonymousClassDeclaration node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(TypeDeclarationStatement node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(SingleVariableDeclaration node) {
+                addVariable(node.resolveBinding(), node.getName());
+                return true;
+            }
+
+            @Override
+            public boolean visit(VariableDeclarationFragment node) {
+                addVariable(node.resolveBinding(), node.getName());
+                return true;
+            }
+        });
+    }
+
+    private void addVariable(IVariableBinding binding, SimpleName name) {
+        if (binding != null && !binding.isField() && !variableIndexes.containsKey(binding.getKey())) {
+            variableIndexes.put(binding.getKey(), variables.size());
+            variables.add(binding);
+            declarationPositions.add(name.getStartPosition());
+        }
+    }
+
+    public MethodDeclaration getMethod() {
+        return method;
+    }
+
+    public List<IVariableBinding> getVariables() {
+        return variables;
+    }
+
+    public int getVariableCount() {
+        return variables.size();
+    }
+
+    public int getDeclarationPosition(int variable) {
+        return declarationPositions.get(variable);
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    public Node getNode(int index) {
+        return nodes.get(index);
+    }
+
+    public int getEntry() {
+        return entry;
+    }
+
+    public int getExit() {
+        return exit;
+    }
+
+    /**
+     * The range [first, end) of the nodes of the statements, or null if they are not statements of this method
+     */
+    public int[] getNodeRange(StatementSequence sequence) {
+        int[] first = statementNodes.get(sequence.getFirstStatement());
+        int[] last = statementNodes.get(sequence.getLastStatement());
+        if (first == null || last == null) {
+            return null;
+        }
+        return new int[]{first[0], last[1]};
+    }
+
+    /**
+     * Whether the sequence can be replaced by a call to a method made of its statements, that is when:
+     * 		its normal flow leaves it to a single node, exceptions going through the call
+     * 		no break or continue in it jumps out of it
+     * 		it only returns from the method when all its flow leaves to the exit, so the call is returned as well
+     */
+    public boolean isSingleExit(StatementSequence sequence) {
+        int[] range = this.getNodeRange(sequence);
+        if (range == null) {
+            return false;
+        }
+        Set<Integer> leavingTo = new HashSet<>();
+        boolean returning = false;
+        for (int n = range[0]; n < range[1]; n++) {
+            Statement jumped = jumps.get(n);
+            if (jumped != null) {
+                int[] jumpedNodes = statementNodes.get(jumped);
+                if (jumpedNodes == null || jumpedNodes[0] < range[0] || jumpedNodes[1] > range[1]) {
+                    return false;
+                }
+            }
+            returning |= returns.contains(n);
+            Node node = nodes.get(n);
+            for (int successor : node.successors) {
+                if ((successor < range[0] || successor >= range[1]) && !node.exceptionalSuccessors.contains(successor)) {
+                    leavingTo.add(successor);
+                }
+            }
+        }
+        if (returning) {
+            return leavingTo.equals(Set.of(exit));
+        }
+        return leavingTo.size() <= 1;
+    }
+
+    /**
+     * Whether a return statement of the method is among the statements of the sequence
+     */
+    public boolean hasReturn(StatementSequence sequence) {
+        int[] range = this.getNodeRange(sequence);
+        if (range == null) {
+            return false;
+        }
+        for (int n = range[0]; n < range[1]; n++) {
+            if (returns.contains(n)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int newNode() {
+        nodes.add(new Node(nodes.size()));
+        return nodes.size() - 1;
+    }
+
+    /**
+     * New node for the given parts of a statement, reached from the given nodes
+     */
+    private int newNode(List<Integer> predecessors, ASTNode... parts) {
+        int node = this.newNode();
+        this.connect(predecessors, node);
+        for (ASTNode part : parts) {
+            if (part != null) {
+                this.addReferences(node, part);
+            }
+        }
+        return node;
+    }
+
+    private void connect(List<Integer> predecessors, int node) {
+        for (int predecessor : predecessors) {
+            nodes.get(predecessor).successors.add(node);
+            nodes.get(node).predecessors.add(predecessor);
+        }
+    }
+
+    private void connect(int predecessor, int node) {
+        this.connect(Collections.singletonList(predecessor), node);
+    }
+
+    /**
+     * Builds the nodes of the statement, reached from the given nodes
+     *
+     * @return the nodes flowing to the statement after this one
+     */
+    private List<Integer> build(Statement statement, List<Integer> predecessors) {
+        int first = nodes.size();
+        List<Integer> exits = this.buildStatement(statement, predecessors);
+        statementNodes.put(statement, new int[]{first, nodes.size()});
+        return exits;
+    }
+
+    private List<Integer> buildStatement(Statement statement, List<Integer> predecessors) {
+        if (statement instanceof Block) {
+            List<Integer> exits = predecessors;
+            for (Object child : ((Block) statement).statements()) {
+                exits = this.build((Statement) child, exits);
+            }
+            return exits;
+        }
+        if (statement instanceof IfStatement) {
+            IfStatement ifStatement = (IfStatement) statement;
+            int condition = this.newNode(predecessors, ifStatement.getExpression());
+            List<Integer> exits = new ArrayList<>(this.build(ifStatement.getThenStatement(), List.of(condition)));
+            if (ifStatement.getElseStatement() != null) {
+                exits.addAll(this.build(ifStatement.getElseStatement(), List.of(condition)));
+            } else {
+                exits.add(condition);
+            }
+            return exits;
+        }
+        if (statement instanceof WhileStatement) {
+            WhileStatement whileStatement = (WhileStatement) statement;
+            int condition = this.newNode(predecessors, whileStatement.getExpression());
+            JumpTarget target = this.enter(statement);
+            this.connect(this.build(whileStatement.getBody(), List.of(condition)), condition);
+            this.leave(target, condition);
+            target.breaks.add(condition);
+            return target.breaks;
+        }
+        if (statement instanceof DoStatement) {
+            DoStatement doStatement = (DoStatement) statement;
+            int first = nodes.size();
+            JumpTarget target = this.enter(statement);
+            List<Integer> bodyExits = this.build(doStatement.getBody(), predecessors);
+            int condition = this.newNode(bodyExits, doStatement.getExpression());
+            this.connect(condition, first);
+            this.leave(target, condition);
+            target.breaks.add(condition);
+            return target.breaks;
+        }
+        if (statement instanceof ForStatement) {
+            ForStatement forStatement = (ForStatement) statement;
+            List<Integer> exits = predecessors;
+            if (!forStatement.initializers().isEmpty()) {
+                exits = List.of(this.newNode(predecessors, toArray(forStatement.initializers())));
+            }
+            int condition = this.newNode(exits, forStatement.getExpression());
+            int updaters = this.newNode(Collections.emptyList(), toArray(forStatement.updaters()));
+            this.connect(updaters, condition);
+            JumpTarget target = this.enter(statement);
+            this.connect(this.build(forStatement.getBody(), List.of(condition)), updaters);
+            this.leave(target, updaters);
+            if (forStatement.getExpression() != null) {
+                target.breaks.add(condition);
+            }
+            return target.breaks;
+        }
+        if (statement instanceof EnhancedForStatement) {
+            EnhancedForStatement forStatement = (EnhancedForStatement) statement;
+            int expression = this.newNode(predecessors, forStatement.getExpression());
+            int parameter = this.newNode(List.of(expression), forStatement.getParameter());
+            JumpTarget target = this.enter(statement);
+            this.connect(this.build(forStatement.getBody(), List.of(parameter)), parameter);
+            this.leave(target, parameter);
+            target.breaks.add(parameter);
+            return target.breaks;
+        }
+        if (statement instanceof SwitchStatement) {
+            SwitchStatement switchStatement = (SwitchStatement) statement;
+            int expression = this.newNode(predecessors, switchStatement.getExpression());
+            JumpTarget target = this.enter(statement);
+            List<Integer> exits = Collections.emptyList();
+            boolean hasDefault = false;
+            for (Object child : switchStatement.statements()) {
+                if (child instanceof SwitchCase) {
+                    SwitchCase switchCase = (SwitchCase) child;
+                    hasDefault |= switchCase.isDefault();
+                    List<Integer> caseLabelPredecessors = new ArrayList<>(exits);
+                    caseLabelPredecessors.add(expression);
+                    int first = nodes.size();
+                    exits = List.of(this.newNode(caseLabelPredecessors, switchCase));
+                    statementNodes.put(switchCase, new int[]{first, nodes.size()});
+                } else {
+                    exits = this.build((Statement) child, exits);
+                }
+            }
+            this.leave(target, -1);
+            target.breaks.addAll(exits);
+            if (!hasDefault) {
+                target.breaks.add(expression);
+            }
+            return target.breaks;
+        }
+        if (statement instanceof LabeledStatement) {
+            LabeledStatement labeled = (LabeledStatement) statement;
+            JumpTarget target = new JumpTarget(statement, labeled.getLabel().getIdentifier());
+            targets.addLast(target);
+            List<Integer> exits = new ArrayList<>(this.build(labeled.getBody(), predecessors));
+            targets.removeLast();
+            exits.addAll(target.breaks);
+            return exits;
+        }
+        if (statement instanceof TryStatement) {
+            return this.buildTry((TryStatement) statement, predecessors);
+        }
+        if (statement instanceof SynchronizedStatement) {
+            SynchronizedStatement synchronizedStatement = (SynchronizedStatement) statement;
+            int expression = this.newNode(predecessors, synchronizedStatement.getExpression());
+            return this.build(synchronizedStatement.getBody(), List.of(expression));
+        }
+        if (statement instanceof BreakStatement) {
+            int node = this.newNode(predecessors);
+            SimpleName label = ((BreakStatement) statement).getLabel();
+            JumpTarget target = this.findTarget(label, false);
+            if (target != null) {
+                target.breaks.add(node);
+                jumps.put(node, target.statement);
+            }
+            return Collections.emptyList();
+        }
+        if (statement instanceof ContinueStatement) {
+            int node = this.newNode(predecessors);
+            SimpleName label = ((ContinueStatement) statement).getLabel();
+            JumpTarget target = this.findTarget(label, true);
+            if (target != null) {
+                target.continues.add(node);
+                jumps.put(node, target.statement);
+            }
+            return Collections.emptyList();
+        }
+        if (statement instanceof ReturnStatement || statement instanceof ThrowStatement) {
+            int node = this.newNode(predecessors, statement);
+            toExit.add(node);
+            if (statement instanceof ReturnStatement) {
+                returns.add(node);
+            }
+            return Collections.emptyList();
+        }
+        // expressions, declarations, asserts, constructor calls, local classes...
+        return List.of(this.newNode(predecessors, statement));
+    }
+
+    /**
+     * Any node of the body may throw, so every catch clause and the finally block are reached from all of them.
+     * These edges are exceptional: they do not leave a statement sequence, the exception goes through the call.
+     */
+    private List<Integer> buildTry(TryStatement tryStatement, List<Integer> predecessors) {
+        int resources = this.newNode(predecessors, toArray(tryStatement.resources()));
+        int first = nodes.size();
+        List<Integer> exits = new ArrayList<>(this.build(tryStatement.getBody(), List.of(resources)));
+        List<Integer> mayThrow = new ArrayList<>();
+        mayThrow.add(resources);
+        for (int node = first; node < nodes.size(); node++) {
+            mayThrow.add(node);
+        }
+        for (Object child : tryStatement.catchClauses()) {
+            CatchClause catchClause = (CatchClause) child;
+            int exception = this.newNode(mayThrow, catchClause.getException());
+            for (int node : mayThrow) {
+                nodes.get(node).exceptionalSuccessors.add(exception);
+            }
+            exits.addAll(this.build(catchClause.getBody(), List.of(exception)));
+        }
+        if (tryStatement.getFinally() == null) {
+            return exits;
+        }
+        List<Integer> thrown = new ArrayList<>();
+        for (int node = first; node < nodes.size(); node++) {
+            if (!exits.contains(node)) {
+                thrown.add(node);
+            }
+        }
+        int finallyFirst = nodes.size();
+        exits.addAll(thrown);
+        List<Integer> finallyExits = this.build(tryStatement.getFinally(), exits);
+        if (finallyFirst < nodes.size()) {
+            for (int node : thrown) {
+                nodes.get(node).exceptionalSuccessors.add(finallyFirst);
+            }
+        }
+        return finallyExits;
+    }
+
+    private JumpTarget enter(Statement loop) {
+        String label = null;
+        if (loop.getParent() instanceof LabeledStatement) {
+            label = ((LabeledStatement) loop.getParent()).getLabel().getIdentifier();
+        }
+        JumpTarget target = new JumpTarget(loop, label);
+        targets.addLast(target);
+        return target;
+    }
+
+    /**
+     * Connects the continues of the loop to the given node, or to nowhere for a switch
+     */
+    private void leave(JumpTarget target, int continueTo) {
+        targets.removeLast();
+        if (continueTo >= 0) {
+            this.connect(target.continues, continueTo);
+        }
+    }
+
+    private JumpTarget findTarget(SimpleName label, boolean isContinue) {
+        Iterator<JumpTarget> iterator = targets.descendingIterator();
+        while (iterator.hasNext()) {
+            JumpTarget target = iterator.next();
+            if (label != null) {
+                if (label.getIdentifier().equals(target.label) && !(target.statement instanceof LabeledStatement && isContinue)) {
+                    return target;
+                }
+            } else if (!(target.statement instanceof LabeledStatement) && !(isContinue && target.statement instanceof SwitchStatement)) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    private static ASTNode[] toArray(List<?> parts) {
+        return parts.toArray(new ASTNode[0]);
+    }
+
+    /**
+     * Records the tracked variables read and written by a part of a node, in source order
+     */
+    private void addReferences(int node, ASTNode part) {
+        part.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName name) {
+                addReference(node, name, getAccess(name));
+                return true;
+            }
+        });
+    }
+
+    private void addReference(int node, SimpleName name, int access) {
+        if (access == 0) {
+            return;
+        }
+        IBinding binding = name.resolveBinding();
+        if (!(binding instanceof IVariableBinding)) {
+            return;
+        }
+        Integer variable = variableIndexes.get(binding.getKey());
+        if (variable != null) {
+            nodes.get(node).references.add(new int[]{variable, access, name.getStartPosition()});
+        }
+    }
+
+    /**
+     * How the name accesses its variable: read, written, both or, for a declaration without initializer, neither
+     */
+    private static int getAccess(SimpleName name) {
+        ASTNode parent = name.getParent();
+        StructuralPropertyDescriptor location = name.getLocationInParent();
+        if (location == VariableDeclarationFragment.NAME_PROPERTY) {
+            return ((VariableDeclarationFragment) parent).getInitializer() != null ? DEF : 0;
+        }
+        if (location == SingleVariableDeclaration.NAME_PROPERTY) {
+            return DEF;
+        }
+        if (location == Assignment.LEFT_HAND_SIDE_PROPERTY) {
+            return ((Assignment) parent).getOperator() == Assignment.Operator.ASSIGN ? DEF : USE | DEF;
+        }
+        if (location == PostfixExpression.OPERAND_PROPERTY) {
+            return USE | DEF;
+        }
+        if (location == PrefixExpression.OPERAND_PROPERTY) {
+            PrefixExpression.Operator operator = ((PrefixExpression) parent).getOperator();
+            if (operator == PrefixExpression.Operator.INCREMENT || operator == PrefixExpression.Operator.DECREMENT) {
+                return USE | DEF;
+            }
+        }
+        return USE;
+    }
+
+    public static class Node {
+        private final int index;
+
+        private final List<Integer> successors = new ArrayList<>();
+
+        private final List<Integer> predecessors = new ArrayList<>();
+
+        /**
+         * The successors only reached when the node throws: a catch clause, a finally block, or the exit from a throw
+         */
+        private final Set<Integer> exceptionalSuccessors = new HashSet<>();
+
+        /**
+         * Triples of variable index, access (USE, DEF or both) and position of the name, in source order
+         */
+        private final List<int[]> references = new ArrayList<>();
+
+        private Node(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<Integer> getSuccessors() {
+            return successors;
+        }
+
+        public List<Integer> getPredecessors() {
+            return predecessors;
+        }
+
+        public List<int[]> getReferences() {
+            return references;
+        }
+    }
+
+    private static class JumpTarget {
+        private final Statement statement;
+        private final String label;
+        private final List<Integer> breaks = new ArrayList<>();
+        private final List<Integer> continues = new ArrayList<>();
+
+        JumpTarget(Statement statement, String label) {
+            this.statement = statement;
+            this.label = label;
+        }
+    }
+}
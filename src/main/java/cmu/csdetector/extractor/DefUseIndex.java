@@ -0,0 +1,104 @@
+package cmu.csdetector.extractor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The reads and writes of the local variables of a method, indexed by position, to find the ones of any statement
+ * sequence of the method without walking its nodes, with their access and the node of the graph they belong to.
+ * It also tells the variables declared by the sequence from the ones it only writes.
+ *
+ * The occurrences are sorted by position, so the ones of a sequence are found by binary search.
+ * It is built from the {@link ControlFlowGraph}, the bindings being already resolved.
+ */
+public class DefUseIndex {
+
+    private final ControlFlowGraph graph;
+
+    /**
+     * The occurrences of the tracked variables, sorted by position
+     */
+    private final int[] positions;
+    private final int[] nodes;
+    private final int[] variables;
+    private final int[] accesses;
+
+    public DefUseIndex(ControlFlowGraph graph) {
+        this.graph = graph;
+        List<int[]> occurrences = new ArrayList<>();
+        for (int n = 0; n < graph.getNodeCount(); n++) {
+            for (int[] reference : graph.getNode(n).getReferences()) {
+                occurrences.add(new int[]{reference[2], n, reference[0], reference[1]});
+            }
+        }
+        occurrences.sort(Comparator.comparingInt(occurrence -> occurrence[0]));
+        this.positions = new int[occurrences.size()];
+        this.nodes = new int[occurrences.size()];
+        this.variables = new int[occurrences.size()];
+        this.accesses = new int[occurrences.size()];
+        for (int i = 0; i < occurrences.size(); i++) {
+            int[] occurrence = occurrences.get(i);
+            this.positions[i] = occurrence[0];
+            this.nodes[i] = occurrence[1];
+            this.variables[i] = occurrence[2];
+            this.accesses[i] = occurrence[3];
+        }
+    }
+
+    public ControlFlowGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * The range [first, end) of the occurrences in the statements of the sequence
+     */
+    public int[] getRange(StatementSequence sequence) {
+        return new int[]{firstIndex(getStart(sequence)), firstIndex(getEnd(sequence))};
+    }
+
+    /**
+     * Whether the variable is declared by a statement of the sequence
+     */
+    public boolean isDeclaredIn(int variable, StatementSequence sequence) {
+        int position = graph.getDeclarationPosition(variable);
+        return getStart(sequence) <= position && position < getEnd(sequence);
+    }
+
+    private static int getStart(StatementSequence sequence) {
+        return sequence.getFirstStatement().getStartPosition();
+    }
+
+    private static int getEnd(StatementSequence sequence) {
+        return sequence.getLastStatement().getStartPosition() + sequence.getLastStatement().getLength();
+    }
+
+    public int getNode(int occurrence) {
+        return nodes[occurrence];
+    }
+
+    public int getVariable(int occurrence) {
+        return variables[occurrence];
+    }
+
+    public int getAccess(int occurrence) {
+        return accesses[occurrence];
+    }
+
+    /**
+     * Index of the first occurrence not before the given position
+     */
+    private int firstIndex(int position) {
+        int lo = 0;
+        int hi = positions.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (positions[mid] < position) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,353 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.ast.ASTBuilder;
+import cmu.csdetector.console.ToolParameters;
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Resource;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.resources.TypeRegistry;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Results of the extractions of previous runs, so an unchanged smelly resource is not extracted again.
+ *
+ * An entry is keyed by the resource and the extractor configuration (the options changing the opportunities).
+ * It records the SHA-256 of the source files the results depend on, and is only used while they all still match:
+ * 		the file of the resource
+ * 		the files of the superclasses of its class in the project, their fields being part of its cohesion
+ * 		the files of the candidate target classes evaluated for its opportunities
+ * The candidates are only known once the resource is extracted, hence the hashes being checked rather than part of
+ * the key.
+ *
+ * The cache is disabled until opened, so the results are only kept across runs when a cache file is given. Only the
+ * entries of the resources of the last run are saved, the ones of resources since changed or no longer smelly are dropped.
+ *
+ * Layout (big endian, strings are an int length followed by UTF-8 bytes, -1 for null):
+ * 		header: magic, version
+ * 		entries: key, file hashes, then the opportunities with their signature, target class and metrics
+ */
+public class ExtractionCache {
+
+    static final int MAGIC = 0x43534443; // "CSDC"
+
+    /**
+     * To be increased whenever the extraction results change for the same sources and options
+     */
+    static final int VERSION = 5;
+
+    private static ExtractionCache singleton;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Keys of the entries used or stored by this run, the ones saved
+     */
+    private final Set<String> usedKeys;
+
+    /**
+     * SHA-256 of the source files of the run, by path, as they are hashed once per run
+     */
+    private final Map<String, String> fileHashes;
+
+    private File cacheFile;
+
+    private int hits;
+
+    static {
+        singleton = new ExtractionCache();
+    }
+
+    private ExtractionCache() {
+        this.entries = new ConcurrentHashMap<>();
+        this.usedKeys = ConcurrentHashMap.newKeySet();
+        this.fileHashes = new ConcurrentHashMap<>();
+    }
+
+    public static ExtractionCache getInstance() {
+        return singleton;
+    }
+
+    /**
+     * Enables the cache and loads the entries of the given file. A missing, unreadable or outdated file is replaced
+     * on save.
+     */
+    public void open(File cacheFile) {
+        this.reset();
+        this.cacheFile = cacheFile;
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an extraction cache");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported extraction cache version " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                entries.put(key, readEntry(in));
+            }
+        } catch (IOException e) {
+            System.out.println("Ignoring the extraction cache " + cacheFile + ": " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cacheFile != null;
+    }
+
+    /**
+     * Writes all the entries to the opened file
+     */
+    public void save() throws IOException {
+        if (!this.isEnabled()) {
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            SortedSet<String> keys = new TreeSet<>(usedKeys);
+            out.writeInt(keys.size());
+            for (String key : keys) {
+                writeString(out, key);
+                writeEntry(out, entries.get(key));
+            }
+        }
+    }
+
+    /**
+     * The opportunities extracted from the resource by a previous run, null when none applies to the current sources
+     */
+    public List<ExtractedMethod> lookup(Resource resource) {
+        if (!this.isEnabled()) {
+            return null;
+        }
+        String key = getKey(resource);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> file : entry.fileHashes.entrySet()) {
+            if (!file.getValue().equals(this.getFileHash(file.getKey()))) {
+                return null;
+            }
+        }
+        usedKeys.add(key);
+        synchronized (this) {
+            hits++;
+        }
+        return entry.extractedMethods;
+    }
+
+    /**
+     * Records the opportunities extracted from the resource
+     *
+     * @param belongingType the class of the resource
+     * @param candidates the candidate target classes evaluated for the opportunities
+     */
+    public void store(Resource resource, Type belongingType, Collection<Type> candidates, List<ExtractedMethod> extractedMethods) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        Set<Type> dependencies = new LinkedHashSet<>();
+        dependencies.add(belongingType);
+        synchronized (ASTBuilder.BINDING_LOCK) {
+            ITypeBinding binding = belongingType.getBinding();
+            for (ITypeBinding superclass = binding != null ? binding.getSuperclass() : null; superclass != null; superclass = superclass.getSuperclass()) {
+                Type type = TypeRegistry.getInstance().getType(superclass.getErasure().getQualifiedName());
+                if (type != null) {
+                    dependencies.add(type);
+                }
+            }
+        }
+        dependencies.addAll(candidates);
+
+        Map<String, String> hashes = new TreeMap<>();
+        for (Type type : dependencies) {
+            String path = type.getSourceFile().getFile().getAbsolutePath();
+            String hash = this.getFileHash(path);
+            if (hash == null) {
+                return; // results depending on a file that cannot be read are not kept
+            }
+            hashes.put(path, hash);
+        }
+        String key = getKey(resource);
+        entries.put(key, new Entry(hashes, new ArrayList<>(extractedMethods)));
+        usedKeys.add(key);
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public void reset() {
+        this.entries.clear();
+        this.usedKeys.clear();
+        this.fileHashes.clear();
+        this.cacheFile = null;
+        synchronized (this) {
+            this.hits = 0;
+        }
+    }
+
+    /**
+     * The resource, by kind, name and start line, as overloaded methods share their name, and the options
+     */
+    static String getKey(Resource resource) {
+        ToolParameters parameters = ToolParameters.getInstance();
+        return (resource instanceof Method ? "method " : "type ") + resource.getFullyQualifiedName() + "@" + resource.getStartLineNumber()
+                + " top=" + parameters.getIntValue(ToolParameters.TOP, 0)
+                + " budget=" + parameters.getIntValue(ToolParameters.BUDGET, Integer.MAX_VALUE)
+                + " candidates=" + parameters.getIntValue(ToolParameters.CANDIDATES, TargetCandidateFinder.DEFAULT_MAX_CANDIDATES);
+    }
+
+    /**
+     * SHA-256 of the file as it is in this run, null when it cannot be read
+     */
+    private String getFileHash(String path) {
+        String hash = fileHashes.get(path);
+        if (hash != null) {
+            return hash;
+        }
+        try {
+            hash = FragmentFingerprint.sha256(Files.readAllBytes(new File(path).toPath()));
+        } catch (IOException e) {
+            return null;
+        }
+        fileHashes.putIfAbsent(path, hash);
+        return hash;
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        Map<String, String> hashes = new TreeMap<>();
+        int fileCount = in.readInt();
+        for (int i = 0; i < fileCount; i++) {
+            hashes.put(readString(in), readString(in));
+        }
+        List<ExtractedMethod> extractedMethods = new ArrayList<>();
+        int methodCount = in.readInt();
+        for (int i = 0; i < methodCount; i++) {
+            int startLine = in.readInt();
+            int endLine = in.readInt();
+            String methodName = readString(in);
+            List<String> parameters = readStrings(in);
+            String returnType = readString(in);
+            ExtractedMethod em = new ExtractedMethod(startLine, endLine, methodName, parameters, returnType);
+            em.setTargetClass(readString(in));
+            em.setBeforeRefactorMetrics(readMetrics(in));
+            em.setAfterRefactorMetrics(readMetrics(in));
+            extractedMethods.add(em);
+        }
+        return new Entry(hashes, extractedMethods);
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeInt(entry.fileHashes.size());
+        for (Map.Entry<String, String> file : entry.fileHashes.entrySet()) {
+            writeString(out, file.getKey());
+            writeString(out, file.getValue());
+        }
+        out.writeInt(entry.extractedMethods.size());
+        for (ExtractedMethod em : entry.extractedMethods) {
+            Integer[] range = em.getLineRange();
+            out.writeInt(range[0]);
+            out.writeInt(range[1]);
+            writeString(out, em.getMethodName());
+            writeStrings(out, em.getParameters());
+            writeString(out, em.getReturnType());
+            writeString(out, em.getTargetClass());
+            writeMetrics(out, em.getBeforeRefactorMetrics());
+            writeMetrics(out, em.getAfterRefactorMetrics());
+        }
+    }
+
+    /**
+     * The metrics keep their order, so the output of a cached opportunity is the same as the extracted one
+     */
+    private static Map<String, Double> readMetrics(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            metrics.put(readString(in), in.readDouble());
+        }
+        return metrics;
+    }
+
+    private static void writeMetrics(DataOutputStream out, Map<String, Double> metrics) throws IOException {
+        if (metrics == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(metrics.size());
+        for (Map.Entry<String, Double> metric : metrics.entrySet()) {
+            writeString(out, metric.getKey());
+            out.writeDouble(metric.getValue());
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        if (strings == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static class Entry {
+        private final Map<String, String> fileHashes;
+        private final List<ExtractedMethod> extractedMethods;
+
+        Entry(Map<String, String> fileHashes, List<ExtractedMethod> extractedMethods) {
+            this.fileHashes = fileHashes;
+            this.extractedMethods = extractedMethods;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Resource;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.smells.Smell;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Statement;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * The extraction to run on a smelly resource, with an estimate of its cost.
+ *
+ * The opportunities only depend on the resource, not on its smells, so a resource is extracted once whatever the
+ * number of its smells: all of them share the extracted methods of the resource.
+ */
+public class ExtractionJob implements Runnable {
+
+    private final Resource resource;
+
+    private final Runnable extraction;
+
+    private final long cost;
+
+    ExtractionJob(Resource resource, Runnable extraction) {
+        this.resource = resource;
+        this.extraction = extraction;
+        this.cost = estimateCost(resource.getNode());
+    }
+
+    /**
+     * One job per smelly resource of the types, their methods first, in the order of the types
+     */
+    public static List<ExtractionJob> createJobs(List<Type> types) {
+        return createJobs(types, (resource, type) -> resource instanceof Method
+                ? () -> new Extractor((Method) resource, type).extract()
+                : () -> new Extractor(type).extract());
+    }
+
+    /**
+     * @param extractions the extraction of a smelly resource, given with its class
+     */
+    static List<ExtractionJob> createJobs(List<Type> types, BiFunction<Resource, Type, Runnable> extractions) {
+        Map<Resource, ExtractionJob> jobsByResource = new LinkedHashMap<>();
+        for (Type type : types) {
+            // method-level smells
+            for (Method method : type.getMethods()) {
+                if (!method.getSmells().isEmpty()) {
+                    jobsByResource.computeIfAbsent(method, resource -> new ExtractionJob(resource, extractions.apply(resource, type)));
+                }
+            }
+            // class-level smells
+            if (!type.getSmells().isEmpty()) {
+                jobsByResource.computeIfAbsent(type, resource -> new ExtractionJob(resource, extractions.apply(resource, type)));
+            }
+        }
+        return new ArrayList<>(jobsByResource.values());
+    }
+
+    /**
+     * The number of candidate sequences grows with both the length of the resource and the number of its statements,
+     * and every candidate is described and ranked before the best ones are created, so their product is used as the
+     * cost of the extraction
+     */
+    static long estimateCost(ASTNode node) {
+        CompilationUnit cu = (CompilationUnit) node.getRoot();
+        long lines = cu.getLineNumber(node.getStartPosition() + node.getLength()) - cu.getLineNumber(node.getStartPosition()) + 1;
+        long[] statements = new long[1];
+        node.accept(new ASTVisitor() {
+            @Override
+            public void preVisit(ASTNode child) {
+                if (child instanceof Statement && !(child instanceof Block)) {
+                    statements[0]++;
+                }
+            }
+        });
+        return Math.max(1, lines) * Math.max(1, statements[0]);
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * The smells of the resource, which all share the opportunities extracted by the job
+     */
+    public List<Smell> getSmells() {
+        return resource.getSmells();
+    }
+
+    public long getCost() {
+        return cost;
+    }
+
+    @Override
+    public void run() {
+        extraction.run();
+    }
+}
@@ -0,0 +1,63 @@
+package cmu.csdetector.extractor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Runs extraction jobs on a work-stealing pool.
+ *
+ * The cost of a job varies by orders of magnitude between a short method and a large class, so the jobs are
+ * submitted from the most to the least expensive: the large ones start first and the small ones fill the idle
+ * workers at the end, instead of a large job starting last and running alone.
+ * Each finished job is handed to the listener, on the calling thread, as soon as it completes.
+ */
+public class ExtractionScheduler {
+
+    private final int parallelism;
+
+    public ExtractionScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ExtractionScheduler(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Runs all the jobs and returns once they are all finished
+     *
+     * @param onFinished called with each job, in the order they finish
+     */
+    public void run(List<ExtractionJob> jobs, Consumer<ExtractionJob> onFinished) {
+        List<ExtractionJob> ordered = new ArrayList<>(jobs);
+        ordered.sort(Comparator.comparingLong(ExtractionJob::getCost).reversed());
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            CompletionService<ExtractionJob> completion = new ExecutorCompletionService<>(pool);
+            for (ExtractionJob job : ordered) {
+                completion.submit(job, job);
+            }
+            for (int i = 0; i < ordered.size(); i++) {
+                onFinished.accept(completion.take().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
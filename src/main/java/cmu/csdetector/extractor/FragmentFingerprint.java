@@ -0,0 +1,98 @@
+package cmu.csdetector.extractor;
+
+import org.eclipse.jdt.core.dom.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Structural fingerprint of a statement sequence, the same for the copies of a fragment wherever they are:
+ * 		the local variables are renamed by order of first occurrence, so the names picked by each copy do not matter
+ * 		the number, string and character literals are abstracted to their kind
+ * 		everything else is kept: node types, operators, modifiers, and the names of the types, fields and methods
+ * The canonical form is hashed with SHA-256.
+ *
+ * The names are told apart from their bindings, so the fingerprint is computed under {@link cmu.csdetector.ast.ASTBuilder#BINDING_LOCK}.
+ */
+public class FragmentFingerprint extends ASTVisitor {
+
+    private final StringBuilder form;
+
+    /**
+     * Index of each local variable, by binding key, in the order of their first occurrence
+     */
+    private final Map<String, Integer> variables;
+
+    private FragmentFingerprint() {
+        this.form = new StringBuilder();
+        this.variables = new HashMap<>();
+    }
+
+    public static String of(StatementSequence sequence) {
+        return sha256(canonicalForm(sequence).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The canonical form of the fragment, before hashing
+     */
+    static String canonicalForm(StatementSequence sequence) {
+        FragmentFingerprint fingerprint = new FragmentFingerprint();
+        for (Statement statement : sequence.getStatements()) {
+            statement.accept(fingerprint);
+        }
+        return fingerprint.form.toString();
+    }
+
+    @Override
+    public boolean preVisit2(ASTNode node) {
+        form.append('(').append(node.getNodeType());
+        if (node instanceof SimpleName) {
+            this.appendName((SimpleName) node);
+        } else if (!isAbstractedLiteral(node)) {
+            for (Object property : node.structuralPropertiesForType()) {
+                if (property instanceof SimplePropertyDescriptor) {
+                    form.append(' ').append(node.getStructuralProperty((SimplePropertyDescriptor) property));
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void postVisit(ASTNode node) {
+        form.append(')');
+    }
+
+    private void appendName(SimpleName name) {
+        IBinding binding = name.resolveBinding();
+        if (binding instanceof IVariableBinding && !((IVariableBinding) binding).isField()) {
+            Integer index = variables.computeIfAbsent(binding.getKey(), key -> variables.size());
+            form.append(" v").append(index);
+        } else {
+            form.append(' ').append(name.getIdentifier());
+        }
+    }
+
+    private static boolean isAbstractedLiteral(ASTNode node) {
+        return node instanceof NumberLiteral || node instanceof StringLiteral || node instanceof CharacterLiteral;
+    }
+
+    /**
+     * SHA-256 of the bytes, in hexadecimal
+     */
+    static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
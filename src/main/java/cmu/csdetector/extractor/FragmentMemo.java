@@ -0,0 +1,52 @@
+package cmu.csdetector.extractor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The results of an opportunity that only depend on its fragment, shared by all the extractions of a run and keyed
+ * by {@link FragmentFingerprint}: the copies of a fragment, in the same method or in other classes, are only
+ * evaluated once.
+ * 		the name predicted for the extracted method, from its body
+ *
+ * The signature of an opportunity is not shared, its parameters and return depending on the data flow of the method
+ * around the fragment.
+ */
+public class FragmentMemo {
+
+    private static FragmentMemo singleton;
+
+    private final Map<String, String> methodNames;
+
+    static {
+        singleton = new FragmentMemo();
+    }
+
+    private FragmentMemo() {
+        this.methodNames = new ConcurrentHashMap<>();
+    }
+
+    public static FragmentMemo getInstance() {
+        return singleton;
+    }
+
+    /**
+     * The name predicted for the fragment, the predictor being only called for the first copy of the fragment.
+     * The prediction is slow, so it is not made while holding the map: two copies evaluated at the same time may both
+     * be predicted, the first name stored is kept.
+     */
+    public String getMethodName(String fingerprint, Supplier<String> predictor) {
+        String name = methodNames.get(fingerprint);
+        if (name != null) {
+            return name;
+        }
+        name = predictor.get();
+        String previous = methodNames.putIfAbsent(fingerprint, name);
+        return previous != null ? previous : name;
+    }
+
+    public void reset() {
+        this.methodNames.clear();
+    }
+}
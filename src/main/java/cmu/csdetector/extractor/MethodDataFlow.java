@@ -0,0 +1,334 @@
+package cmu.csdetector.extractor;
+
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+
+import java.util.*;
+
+/**
+ * Reaching definitions and liveness of the local variables of a method, solved once on its {@link ControlFlowGraph}
+ * with bitsets, to get the signature of any statement sequence of the method:
+ * 		the parameters are the variables read in the sequence that a definition made out of it may reach, and the
+ * 		returned variable when a definition made out of the sequence may also reach its exits
+ * 		the returns are the variables defined in the sequence whose definition reaches one of its exits while live there
+ * 		the locals are the variables the sequence writes without declaring them nor getting them as parameters, so
+ * 		the extracted method declares them
+ *
+ * A definition is a write of a variable by a node, definitions being numbered in the order of their nodes, so the
+ * definitions of a sequence are a range of numbers as well. The reads of a sequence are found with the {@link DefUseIndex}.
+ */
+public class MethodDataFlow {
+
+    private final ControlFlowGraph graph;
+
+    private final DefUseIndex index;
+
+    private final int variableWords;
+
+    private final int definitionWords;
+
+    /**
+     * definitionVariables[d] is the variable of the definition d
+     */
+    private final int[] definitionVariables;
+
+    /**
+     * firstDefinitions[n] is the first definition of the node n, firstDefinitions[n + 1] the first of the next one
+     */
+    private final int[] firstDefinitions;
+
+    /**
+     * variableDefinitions[v] is the bitset of the definitions of the variable v
+     */
+    private final long[][] variableDefinitions;
+
+    private final long[][] reachingIn;
+
+    private final long[][] reachingOut;
+
+    private final long[][] liveIn;
+
+    public MethodDataFlow(MethodDeclaration method) {
+        this(new ControlFlowGraph(method));
+    }
+
+    public MethodDataFlow(ControlFlowGraph graph) {
+        this.graph = graph;
+        this.index = new DefUseIndex(graph);
+        int nodes = graph.getNodeCount();
+        int variables = graph.getVariableCount();
+        this.variableWords = Math.max(1, (variables + 63) >>> 6);
+
+        this.firstDefinitions = new int[nodes + 1];
+        List<Integer> definitionVariables = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            firstDefinitions[n] = definitionVariables.size();
+            for (int[] reference : graph.getNode(n).getReferences()) {
+                if ((reference[1] & ControlFlowGraph.DEF) != 0) {
+                    definitionVariables.add(reference[0]);
+                }
+            }
+        }
+        firstDefinitions[nodes] = definitionVariables.size();
+        this.definitionVariables = definitionVariables.stream().mapToInt(Integer::intValue).toArray();
+        this.definitionWords = Math.max(1, (this.definitionVariables.length + 63) >>> 6);
+
+        this.variableDefinitions = new long[variables][definitionWords];
+        for (int d = 0; d < this.definitionVariables.length; d++) {
+            setBit(variableDefinitions[this.definitionVariables[d]], d);
+        }
+
+        this.reachingIn = new long[nodes][definitionWords];
+        this.reachingOut = new long[nodes][definitionWords];
+        this.solveReachingDefinitions();
+        this.liveIn = new long[nodes][variableWords];
+        this.solveLiveness();
+    }
+
+    /**
+     * Forward: in[n] = U out[p] for the predecessors p, out[n] = gen[n] U (in[n] - kill[n]),
+     * gen[n] being the definitions of n and kill[n] all the definitions of the variables n defines
+     */
+    private void solveReachingDefinitions() {
+        int nodes = graph.getNodeCount();
+        long[][] gen = new long[nodes][definitionWords];
+        long[][] kill = new long[nodes][definitionWords];
+        for (int n = 0; n < nodes; n++) {
+            for (int d = firstDefinitions[n]; d < firstDefinitions[n + 1]; d++) {
+                setBit(gen[n], d);
+                or(kill[n], variableDefinitions[definitionVariables[d]]);
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int n = 0; n < nodes; n++) {
+                long[] in = reachingIn[n];
+                for (int p : graph.getNode(n).getPredecessors()) {
+                    or(in, reachingOut[p]);
+                }
+                long[] out = reachingOut[n];
+                for (int w = 0; w < definitionWords; w++) {
+                    long value = gen[n][w] | (in[w] & ~kill[n][w]);
+                    if (value != out[w]) {
+                        out[w] = value;
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Backward: out[n] = U in[s] for the successors s, in[n] = use[n] U (out[n] - def[n]),
+     * def[n] only holding the variables n writes without reading them, as a node is not split into its evaluation order
+     */
+    private void solveLiveness() {
+        int nodes = graph.getNodeCount();
+        long[][] use = new long[nodes][variableWords];
+        long[][] def = new long[nodes][variableWords];
+        for (int n = 0; n < nodes; n++) {
+            for (int[] reference : graph.getNode(n).getReferences()) {
+                if ((reference[1] & ControlFlowGraph.USE) != 0) {
+                    setBit(use[n], reference[0]);
+                }
+            }
+            for (int[] reference : graph.getNode(n).getReferences()) {
+                if ((reference[1] & ControlFlowGraph.DEF) != 0 && !hasBit(use[n], reference[0])) {
+                    setBit(def[n], reference[0]);
+                }
+            }
+        }
+        long[] out = new long[variableWords];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int n = nodes - 1; n >= 0; n--) {
+                Arrays.fill(out, 0);
+                for (int s : graph.getNode(n).getSuccessors()) {
+                    or(out, liveIn[s]);
+                }
+                long[] in = liveIn[n];
+                for (int w = 0; w < variableWords; w++) {
+                    long value = use[n][w] | (out[w] & ~def[n][w]);
+                    if (value != in[w]) {
+                        in[w] = value;
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    public ControlFlowGraph getGraph() {
+        return graph;
+    }
+
+    public DefUseIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Whether the sequence can be replaced by a call: its control flow has a single exit (see
+     * {@link ControlFlowGraph#isSingleExit(StatementSequence)}) and it defines one variable used after it at most, as
+     * a method returns one value
+     */
+    public boolean isExtractable(StatementSequence sequence) {
+        return graph.isSingleExit(sequence) && this.getReturns(sequence).size() <= 1;
+    }
+
+    /**
+     * Variables read in the sequence and defined out of it, in the order of their first read, then the returned
+     * variable if it is not always defined by the sequence
+     */
+    public List<IVariableBinding> getParameters(StatementSequence sequence) {
+        List<IVariableBinding> parameters = new ArrayList<>();
+        int[] range = graph.getNodeRange(sequence);
+        if (range == null) {
+            return parameters;
+        }
+        int firstDefinition = firstDefinitions[range[0]];
+        int endDefinition = firstDefinitions[range[1]];
+        boolean[] added = new boolean[graph.getVariableCount()];
+        int[] occurrences = index.getRange(sequence);
+        for (int i = occurrences[0]; i < occurrences[1]; i++) {
+            int variable = index.getVariable(i);
+            if ((index.getAccess(i) & ControlFlowGraph.USE) == 0 || added[variable]) {
+                continue;
+            }
+            if (reachesFromOutside(reachingIn[index.getNode(i)], variableDefinitions[variable], firstDefinition, endDefinition)) {
+                added[variable] = true;
+                parameters.add(graph.getVariables().get(variable));
+            }
+        }
+        // the extracted method returns the variable on every path, so it needs its value when the sequence may not write it
+        long[][] exits = this.getExits(range);
+        for (int variable : this.getReturnedVariables(range, exits)) {
+            if (!added[variable] && reachesFromOutside(exits[0], variableDefinitions[variable], firstDefinition, endDefinition)) {
+                added[variable] = true;
+                parameters.add(graph.getVariables().get(variable));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Variables defined in the sequence and used after it, in the order of their first definition in the sequence.
+     * An extracted method can return one of them at most.
+     */
+    public List<IVariableBinding> getReturns(StatementSequence sequence) {
+        List<IVariableBinding> returns = new ArrayList<>();
+        int[] range = graph.getNodeRange(sequence);
+        if (range == null) {
+            return returns;
+        }
+        for (int variable : this.getReturnedVariables(range, this.getExits(range))) {
+            returns.add(graph.getVariables().get(variable));
+        }
+        return returns;
+    }
+
+    /**
+     * Variables written in the sequence but declared out of it, that are not parameters, in the order of their first
+     * write. The extracted method has to declare them, the returned variable included.
+     */
+    public List<IVariableBinding> getLocals(StatementSequence sequence) {
+        List<IVariableBinding> locals = new ArrayList<>();
+        if (graph.getNodeRange(sequence) == null) {
+            return locals;
+        }
+        List<IVariableBinding> parameters = this.getParameters(sequence);
+        boolean[] added = new boolean[graph.getVariableCount()];
+        int[] occurrences = index.getRange(sequence);
+        for (int i = occurrences[0]; i < occurrences[1]; i++) {
+            int variable = index.getVariable(i);
+            if ((index.getAccess(i) & ControlFlowGraph.DEF) == 0 || added[variable] || index.isDeclaredIn(variable, sequence)) {
+                continue;
+            }
+            added[variable] = true;
+            IVariableBinding binding = graph.getVariables().get(variable);
+            if (!parameters.contains(binding)) {
+                locals.add(binding);
+            }
+        }
+        return locals;
+    }
+
+    /**
+     * The definitions reaching a node out of the nodes [first, end), and the variables live there
+     */
+    private long[][] getExits(int[] range) {
+        long[] leaving = new long[definitionWords];
+        long[] live = new long[variableWords];
+        for (int n = range[0]; n < range[1]; n++) {
+            for (int s : graph.getNode(n).getSuccessors()) {
+                if (s < range[0] || s >= range[1]) {
+                    or(leaving, reachingOut[n]);
+                    or(live, liveIn[s]);
+                }
+            }
+        }
+        return new long[][]{leaving, live};
+    }
+
+    /**
+     * Variables with a definition of the nodes [first, end) reaching their exits while live there, in the order of
+     * their first definition
+     */
+    private List<Integer> getReturnedVariables(int[] range, long[][] exits) {
+        List<Integer> returns = new ArrayList<>();
+        boolean[] added = new boolean[graph.getVariableCount()];
+        for (int d = firstDefinitions[range[0]]; d < firstDefinitions[range[1]]; d++) {
+            int variable = definitionVariables[d];
+            if (!added[variable] && hasBit(exits[0], d) && hasBit(exits[1], variable)) {
+                added[variable] = true;
+                returns.add(variable);
+            }
+        }
+        return returns;
+    }
+
+    /**
+     * Whether a definition of the given ones, out of [first, end), is among the reaching ones
+     */
+    private static boolean reachesFromOutside(long[] reaching, long[] definitions, int first, int end) {
+        for (int w = 0; w < reaching.length; w++) {
+            long bits = reaching[w] & definitions[w];
+            if (bits == 0) {
+                continue;
+            }
+            long inside = rangeMask(w, first, end);
+            if ((bits & ~inside) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bits of the word w falling in [first, end)
+     */
+    private static long rangeMask(int w, int first, int end) {
+        int from = Math.max(first - (w << 6), 0);
+        int to = Math.min(end - (w << 6), 64);
+        if (from >= to) {
+            return 0L;
+        }
+        long upTo = to == 64 ? -1L : (1L << to) - 1;
+        return upTo & (-1L << from);
+    }
+
+    private static void or(long[] target, long[] bits) {
+        for (int w = 0; w < target.length; w++) {
+            target[w] |= bits[w];
+        }
+    }
+
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static boolean hasBit(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+}
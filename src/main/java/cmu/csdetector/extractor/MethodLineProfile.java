@@ -0,0 +1,384 @@
+package cmu.csdetector.extractor;
+
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.*;
+
+/**
+ * Line-indexed profile of a method, built once from its AST, to get the metrics of any range of its lines:
+ * 		the number of decision points (the CC contribution of the range, as CyclomaticComplexityVisitor counts it)
+ * 		and the number of statements, both from prefix sums, in constant time
+ * 		the fields accessed, from per-line bitsets and a sparse table of their ORs, in O(#fields / 64)
+ * 		the methods called, out of the Java library, from per-line lists, in O(#lines + #calls)
+ *
+ * A node is accounted on the line it starts at. Fields are indexed by binding key, whichever class declares them.
+ */
+public class MethodLineProfile {
+
+    private final MethodDeclaration method;
+
+    private final int firstLine;
+
+    private final int lastLine;
+
+    /**
+     * decisionPrefix[i] is the number of decision points on the lines [firstLine, firstLine + i)
+     */
+    private final int[] decisionPrefix;
+
+    /**
+     * statementPrefix[i] is the number of statements starting on the lines [firstLine, firstLine + i)
+     */
+    private final int[] statementPrefix;
+
+    /**
+     * Binding keys of the accessed fields, the index of a key being its bit in the bitsets
+     */
+    private final List<String> fieldKeys;
+
+    private final Map<String, Integer> fieldIndexes;
+
+    private final int words;
+
+    /**
+     * sparseTable[k][i] is the OR of the field bitsets of the lines [firstLine + i, firstLine + i + 2^k)
+     */
+    private final long[][][] sparseTable;
+
+    /**
+     * lineCalls.get(i) holds the binding keys of the methods called on the line firstLine + i
+     */
+    private final List<List<String>> lineCalls;
+
+    /**
+     * Qualified name of the class declaring each called method, by binding key
+     */
+    private final Map<String, String> callDeclaringClasses;
+
+    public MethodLineProfile(MethodDeclaration method) {
+        this.method = method;
+        CompilationUnit cu = (CompilationUnit) method.getRoot();
+        this.firstLine = cu.getLineNumber(method.getStartPosition());
+        this.lastLine = cu.getLineNumber(method.getStartPosition() + method.getLength());
+        int lines = lastLine - firstLine + 1;
+
+        LineVisitor visitor = new LineVisitor(cu, lines);
+        method.accept(visitor);
+
+        this.fieldKeys = visitor.fieldKeys;
+        this.fieldIndexes = visitor.fieldIndexes;
+        this.decisionPrefix = prefixSums(visitor.decisions);
+        this.statementPrefix = prefixSums(visitor.statements);
+        this.words = Math.max(1, (fieldKeys.size() + 63) >>> 6);
+        this.sparseTable = buildSparseTable(visitor.lineFields, lines);
+        this.lineCalls = visitor.lineCalls;
+        this.callDeclaringClasses = visitor.callDeclaringClasses;
+    }
+
+    private static int[] prefixSums(int[] values) {
+        int[] prefix = new int[values.length + 1];
+        for (int i = 0; i < values.length; i++) {
+            prefix[i + 1] = prefix[i] + values[i];
+        }
+        return prefix;
+    }
+
+    private long[][][] buildSparseTable(List<List<Integer>> lineFields, int lines) {
+        int levels = 32 - Integer.numberOfLeadingZeros(lines);
+        long[][][] table = new long[levels][][];
+        table[0] = new long[lines][words];
+        for (int i = 0; i < lines; i++) {
+            for (int field : lineFields.get(i)) {
+                table[0][i][field >>> 6] |= 1L << field;
+            }
+        }
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            int size = lines - (1 << k) + 1;
+            table[k] = new long[size][words];
+            for (int i = 0; i < size; i++) {
+                for (int w = 0; w < words; w++) {
+                    table[k][i][w] = table[k - 1][i][w] | table[k - 1][i + half][w];
+                }
+            }
+        }
+        return table;
+    }
+
+    public MethodDeclaration getMethod() {
+        return method;
+    }
+
+    public int getFirstLine() {
+        return firstLine;
+    }
+
+    public int getLastLine() {
+        return lastLine;
+    }
+
+    public boolean contains(int line) {
+        return firstLine <= line && line <= lastLine;
+    }
+
+    /**
+     * CC of the whole method
+     */
+    public int getCyclomaticComplexity() {
+        return 1 + decisionPrefix[decisionPrefix.length - 1];
+    }
+
+    /**
+     * Number of decision points starting on the lines [from, to]
+     */
+    public int getDecisionPoints(int from, int to) {
+        return rangeSum(decisionPrefix, from, to);
+    }
+
+    /**
+     * Number of statements starting on the lines [from, to]
+     */
+    public int getStatementCount(int from, int to) {
+        return rangeSum(statementPrefix, from, to);
+    }
+
+    private int rangeSum(int[] prefix, int from, int to) {
+        int start = Math.max(from, firstLine) - firstLine;
+        int end = Math.min(to, lastLine) - firstLine + 1;
+        if (start >= end) {
+            return 0;
+        }
+        return prefix[end] - prefix[start];
+    }
+
+    /**
+     * Bitset of the fields accessed on the lines [from, to], see {@link #getFieldIndex(String)}
+     */
+    public long[] getFieldBits(int from, int to) {
+        long[] bits = new long[words];
+        int start = Math.max(from, firstLine) - firstLine;
+        int end = Math.min(to, lastLine) - firstLine;
+        if (start > end) {
+            return bits;
+        }
+        int k = 31 - Integer.numberOfLeadingZeros(end - start + 1);
+        long[] left = sparseTable[k][start];
+        long[] right = sparseTable[k][end - (1 << k) + 1];
+        for (int w = 0; w < words; w++) {
+            bits[w] = left[w] | right[w];
+        }
+        return bits;
+    }
+
+    /**
+     * Bitset of the fields accessed out of the lines [from, to]
+     */
+    public long[] getFieldBitsOutside(int from, int to) {
+        long[] before = this.getFieldBits(firstLine, from - 1);
+        long[] after = this.getFieldBits(to + 1, lastLine);
+        for (int w = 0; w < words; w++) {
+            before[w] |= after[w];
+        }
+        return before;
+    }
+
+    /**
+     * Binding keys of the distinct fields accessed on the lines [from, to]
+     */
+    public Set<String> getFieldsAccessed(int from, int to) {
+        return this.getFieldKeys(this.getFieldBits(from, to));
+    }
+
+    public Set<String> getFieldKeys(long[] bits) {
+        Set<String> keys = new HashSet<>();
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                keys.add(fieldKeys.get((w << 6) + Long.numberOfTrailingZeros(word)));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Bitset of the given fields, among the fields accessed by the method
+     */
+    public long[] getMask(Set<String> keys) {
+        long[] mask = new long[words];
+        for (String key : keys) {
+            Integer index = fieldIndexes.get(key);
+            if (index != null) {
+                mask[index >>> 6] |= 1L << index;
+            }
+        }
+        return mask;
+    }
+
+    public static int countBits(long[] bits, long[] mask) {
+        int count = 0;
+        for (int w = 0; w < bits.length; w++) {
+            count += Long.bitCount(bits[w] & mask[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Binding keys of the distinct methods called on the lines [from, to]
+     */
+    public Set<String> getMethodsCalled(int from, int to) {
+        Set<String> keys = new HashSet<>();
+        int start = Math.max(from, firstLine) - firstLine;
+        int end = Math.min(to, lastLine) - firstLine;
+        for (int i = start; i <= end; i++) {
+            keys.addAll(lineCalls.get(i));
+        }
+        return keys;
+    }
+
+    /**
+     * Qualified name of the class declaring a method called by this method
+     */
+    public String getDeclaringClass(String calledMethodKey) {
+        return callDeclaringClasses.get(calledMethodKey);
+    }
+
+    /**
+     * Index of the field in the bitsets, or -1 if the method does not access it
+     */
+    public int getFieldIndex(String key) {
+        return fieldIndexes.getOrDefault(key, -1);
+    }
+
+    /**
+     * Records decision points, statements, field accesses and method calls per line
+     */
+    private class LineVisitor extends ASTVisitor {
+        private final CompilationUnit cu;
+        private final int[] decisions;
+        private final int[] statements;
+        private final List<List<Integer>> lineFields;
+        private final List<String> fieldKeys = new ArrayList<>();
+        private final Map<String, Integer> fieldIndexes = new HashMap<>();
+        private final List<List<String>> lineCalls;
+        private final Map<String, String> callDeclaringClasses = new HashMap<>();
+
+        LineVisitor(CompilationUnit cu, int lines) {
+            this.cu = cu;
+            this.decisions = new int[lines];
+            this.statements = new int[lines];
+            this.lineFields = new ArrayList<>(lines);
+            this.lineCalls = new ArrayList<>(lines);
+            for (int i = 0; i < lines; i++) {
+                this.lineFields.add(new ArrayList<>());
+                this.lineCalls.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * Same calls as DistinctMethodInvocationVisitor counts: resolved, and not declared in the Java library
+         */
+        private void addCall(ASTNode node, IMethodBinding binding) {
+            if (binding == null || binding.getDeclaringClass() == null) {
+                return;
+            }
+            String declaringClass = binding.getDeclaringClass().getErasure().getQualifiedName();
+            if (declaringClass.startsWith("java")) {
+                return;
+            }
+            String key = binding.getMethodDeclaration().getKey();
+            callDeclaringClasses.put(key, declaringClass);
+            lineCalls.get(indexOf(node)).add(key);
+        }
+
+        @Override
+        public boolean visit(MethodInvocation node) {
+            addCall(node, node.resolveMethodBinding());
+            return true;
+        }
+
+        @Override
+        public boolean visit(SuperMethodInvocation node) {
+            addCall(node, node.resolveMethodBinding());
+            return true;
+        }
+
+        private int indexOf(ASTNode node) {
+            int line = cu.getLineNumber(node.getStartPosition()) - firstLine;
+            return Math.max(0, Math.min(line, decisions.length - 1));
+        }
+
+        private void addDecisions(ASTNode node, int count) {
+            decisions[indexOf(node)] += count;
+        }
+
+        @Override
+        public void preVisit(ASTNode node) {
+            if (node instanceof Statement && !(node instanceof Block)) {
+                statements[indexOf(node)]++;
+            }
+        }
+
+        @Override
+        public boolean visit(CatchClause node) {
+            addDecisions(node, 1);
+            return true;
+        }
+
+        @Override
+        public boolean visit(DoStatement node) {
+            addDecisions(node, 1);
+            return true;
+        }
+
+        @Override
+        public boolean visit(EnhancedForStatement node) {
+            addDecisions(node, 1);
+            return true;
+        }
+
+        @Override
+        public boolean visit(ForStatement node) {
+            addDecisions(node, 1);
+            return true;
+        }
+
+        @Override
+        public boolean visit(IfStatement node) {
+            addDecisions(node, node.getElseStatement() != null ? 2 : 1);
+            return true;
+        }
+
+        @Override
+        public boolean visit(LambdaExpression node) {
+            addDecisions(node, 1);
+            return true;
+        }
+
+        @Override
+        public boolean visit(SwitchCase node) {
+            addDecisions(node, 1);
+            return true;
+        }
+
+        @Override
+        public boolean visit(WhileStatement node) {
+            addDecisions(node, 1);
+            return true;
+        }
+
+        @Override
+        public boolean visit(SimpleName node) {
+            IBinding binding = node.resolveBinding();
+            if (binding != null && binding.getKind() == IBinding.VARIABLE && ((IVariableBinding) binding).isField()) {
+                String key = binding.getKey();
+                Integer index = fieldIndexes.get(key);
+                if (index == null) {
+                    index = fieldKeys.size();
+                    fieldKeys.add(key);
+                    fieldIndexes.put(key, index);
+                }
+                lineFields.get(indexOf(node)).add(index);
+            }
+            return true;
+        }
+    }
+}
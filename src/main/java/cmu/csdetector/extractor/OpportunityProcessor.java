@@ -1,6 +1,7 @@
 package cmu.csdetector.extractor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class OpportunityProcessor {
@@ -23,60 +24,149 @@ public class OpportunityProcessor {
         this.extractedMethods = extractedMethods;
     }
 
+    /**
+     * Groups the opportunities of similar size that significantly overlap, keeping the one of best benefit of each
+     * group. Opportunities are taken in order, each one being compared with the following ones that are not grouped
+     * yet; when a following one is not significantly worse, it becomes the one compared with the rest.
+     */
     public List<ExtractedMethod> process() {
+        int n = extractedMethods.size();
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        double[] benefits = new double[n];
+        for (int i = 0; i < n; i++) {
+            ExtractedMethod extractedMethod = extractedMethods.get(i);
+            Integer[] range = extractedMethod.getLineRange();
+            starts[i] = range[0];
+            ends[i] = range[1];
+            benefits[i] = calcBenefit(extractedMethod);
+        }
+        boolean[] grouped = this.group(starts, ends, benefits);
+
         List<ExtractedMethod> result = new ArrayList<>();
-        boolean[] grouped = new boolean[extractedMethods.size()];
-        for (int i = 0; i < extractedMethods.size(); i++) {
+        for (int i = 0; i < grouped.length; i++) {
+            if (!grouped[i]) {
+                result.add(extractedMethods.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The grouping of {@link #process()} on the line ranges and benefits of the opportunities. Two opportunities can
+     * only be grouped when their ranges intersect and their sizes are close, so the opportunities compared with one
+     * are only the ones starting in a window of lines, found by binary search among the opportunities sorted by start
+     * line, then taken in order.
+     *
+     * @return whether each opportunity is grouped with a better one
+     */
+    boolean[] group(int[] starts, int[] ends, double[] benefits) {
+        int n = starts.length;
+        // opportunities sorted by start line, the index in the low bits
+        long[] byStart = new long[n];
+        for (int i = 0; i < n; i++) {
+            byStart[i] = ((long) starts[i] << 32) | i;
+        }
+        Arrays.sort(byStart);
+        int[] sortedStarts = new int[n];
+        int[] sortedIndexes = new int[n];
+        for (int k = 0; k < n; k++) {
+            sortedStarts[k] = (int) (byStart[k] >> 32);
+            sortedIndexes[k] = (int) byStart[k];
+        }
+
+        boolean[] grouped = new boolean[n];
+        int[] candidates = new int[n];
+        for (int i = 0; i < n; i++) {
             if (grouped[i]) {
                 continue;
             }
-            ExtractedMethod current = extractedMethods.get(i);
-            for (int j = i + 1; j < extractedMethods.size(); j++) {
-                if (grouped[j]) {
-                    continue;
-                }
-                ExtractedMethod other = extractedMethods.get(j);
-                if (isSimilarSize(current, other) && isSignificantlyOverlapping(current, other)) {
-                    if (calcBenefit(current) - calcBenefit(other) > significantDifferenceThreshold) {
+            int current = i;
+            int last = i;
+            boolean switched = true;
+            while (switched) {
+                switched = false;
+                int count = this.findCandidates(current, last, starts, ends, sortedStarts, sortedIndexes, candidates);
+                for (int c = 0; c < count; c++) {
+                    int j = candidates[c];
+                    if (grouped[j] || !isSimilarSize(starts, ends, current, j) || !isSignificantlyOverlapping(starts, ends, current, j)) {
+                        continue;
+                    }
+                    if (benefits[current] - benefits[j] > significantDifferenceThreshold) {
                         grouped[j] = true;
                     } else {
                         grouped[i] = true;
-                        current = other;
+                        current = j;
+                        last = j;
+                        switched = true;
+                        break;
                     }
                 }
             }
         }
-        for (int i = 0; i < grouped.length; i++) {
-            if (!grouped[i]) {
-                result.add(extractedMethods.get(i));
+        return grouped;
+    }
+
+    /**
+     * Fills candidates with the opportunities after the index last that may be grouped with the given one, in order:
+     * an intersecting range starts before the end of the opportunity, and a range of close size ending after its
+     * start cannot start more than 1.2 times its size before it.
+     *
+     * @return the number of candidates
+     */
+    private int findCandidates(int opportunity, int last, int[] starts, int[] ends, int[] sortedStarts, int[] sortedIndexes, int[] candidates) {
+        int size = ends[opportunity] - starts[opportunity];
+        long from = (long) starts[opportunity] - (long) Math.ceil(size * (1 + maxSizeDifference)) - 1;
+        int k = lowerBound(sortedStarts, from);
+        int count = 0;
+        for (; k < sortedStarts.length && sortedStarts[k] < ends[opportunity]; k++) {
+            if (sortedIndexes[k] > last) {
+                candidates[count++] = sortedIndexes[k];
             }
         }
-        return result;
+        Arrays.sort(candidates, 0, count);
+        return count;
     }
 
-    private boolean isSimilarSize(ExtractedMethod a, ExtractedMethod b) {
-        Integer[] aRange = a.getLineRange();
-        int aSize = aRange[1] - aRange[0];
-        Integer[] bRange = b.getLineRange();
-        int bSize = bRange[1] - bRange[0];
+    /**
+     * First position of the sorted values holding a value not lower than the given one
+     */
+    private static int lowerBound(int[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private boolean isSimilarSize(int[] starts, int[] ends, int a, int b) {
+        int aSize = ends[a] - starts[a];
+        int bSize = ends[b] - starts[b];
 
         var minSize = Math.min(aSize, bSize);
         var diff = Math.abs(aSize - bSize);
         return diff < minSize * maxSizeDifference;
     }
 
-    private boolean isSignificantlyOverlapping(ExtractedMethod a, ExtractedMethod b) {
-        Integer[] aRange = a.getLineRange();
-        int aSize = aRange[1] - aRange[0];
-        Integer[] bRange = b.getLineRange();
-        int bSize = bRange[1] - bRange[0];
+    private boolean isSignificantlyOverlapping(int[] starts, int[] ends, int a, int b) {
+        int aSize = ends[a] - starts[a];
+        int bSize = ends[b] - starts[b];
 
         var maxSize = Math.max(aSize, bSize);
-        var intersectionSize = Math.min(aRange[1], bRange[1]) - Math.max(aRange[0], bRange[0]);
+        var intersectionSize = Math.min(ends[a], ends[b]) - Math.max(starts[a], starts[b]);
         return intersectionSize > minOverlap * maxSize;
     }
 
-    private double calcBenefit(ExtractedMethod extractedMethod) {
+    /**
+     * The benefit of an opportunity, the one the grouping compares
+     */
+    static double calcBenefit(ExtractedMethod extractedMethod) {
         double originalLCOM = extractedMethod.getOriginalLCOM();
         double newLCOM = extractedMethod.getOpportunityLCOM(); // opportunity lcom
         double refactoredLCOM = extractedMethod.getRefactoredLCOM();
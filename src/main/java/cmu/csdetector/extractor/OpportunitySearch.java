@@ -0,0 +1,116 @@
+package cmu.csdetector.extractor;
+
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Branch-and-bound search of the opportunities worth creating, instead of creating them all. Every sequence gets an
+ * upper bound of the benefit of its opportunity, computed from the profiles before creating it. The sequences are
+ * created in decreasing bound order, and the created opportunities grouped after each batch:
+ * 		the search stops once topK opportunities survive the grouping, and the benefit of the topK-th best of them is
+ * 		not lower than the best bound of the sequences left, which cannot do better
+ * 		the sequences of a method are no longer created once budget of them were, so the cost of a smell is bounded
+ * The grouping is made again with each batch, so a sequence left aside could still have changed it by being grouped
+ * with a survivor of close benefit: the survivors may not be the topK survivors of the grouping of all the sequences.
+ *
+ * The creations are made in parallel, by batches of as many sequences as survivors are still missing, or as topK once
+ * enough survive. Without topK nor budget, all the sequences are created in a single batch and grouped once.
+ */
+public class OpportunitySearch {
+
+    private final int topK;
+
+    private final int budget;
+
+    /**
+     * @param topK the number of opportunities to find, Integer.MAX_VALUE for all of them
+     * @param budget the maximum number of sequences created per method, Integer.MAX_VALUE for no limit
+     */
+    public OpportunitySearch(int topK, int budget) {
+        this.topK = topK;
+        this.budget = budget;
+    }
+
+    /**
+     * @param sequences the candidate sequences
+     * @param bound upper bound of the benefit of the opportunity of a sequence
+     * @param create creates the opportunity of a sequence, null when the sequence cannot be extracted
+     * @param benefit the benefit of a created opportunity, the one the grouping compares
+     * @param group the opportunities left by grouping the given ones, given and kept in the order of their sequences
+     * @return the best opportunities found, at most topK, in the order of their sequences
+     */
+    public List<ExtractedMethod> search(List<StatementSequence> sequences, ToDoubleFunction<StatementSequence> bound, Function<StatementSequence, ExtractedMethod> create,
+                                        ToDoubleFunction<ExtractedMethod> benefit, UnaryOperator<List<ExtractedMethod>> group) {
+        int n = sequences.size();
+        double[] bounds = new double[n];
+        boolean unlimited = topK == Integer.MAX_VALUE && budget == Integer.MAX_VALUE;
+        for (int i = 0; i < n && !unlimited; i++) {
+            bounds[i] = bound.applyAsDouble(sequences.get(i));
+        }
+        // best bound first, the first sequences first among equal bounds
+        Comparator<Integer> bestFirst = (a, b) -> bounds[a] != bounds[b] ? Double.compare(bounds[b], bounds[a]) : Integer.compare(a, b);
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, n), bestFirst);
+        for (int i = 0; i < n; i++) {
+            queue.add(i);
+        }
+
+        Map<MethodDeclaration, Integer> created = new HashMap<>();
+        SortedMap<Integer, ExtractedMethod> found = new TreeMap<>();
+        Map<ExtractedMethod, Integer> indexes = new IdentityHashMap<>();
+        Map<ExtractedMethod, Double> benefits = new IdentityHashMap<>();
+        // best benefit first, the first sequences first among equal benefits
+        Comparator<ExtractedMethod> bestBenefitFirst = Comparator.comparing((ExtractedMethod opportunity) -> -benefits.get(opportunity))
+                .thenComparing(indexes::get);
+        List<ExtractedMethod> survivors = new ArrayList<>();
+        while (true) {
+            // the sequences of the methods out of budget are dropped, the head of the queue is then the best bound left
+            while (!queue.isEmpty() && created.getOrDefault(sequences.get(queue.peek()).getMethod(), 0) >= budget) {
+                queue.poll();
+            }
+            double kthBenefit = Double.NEGATIVE_INFINITY;
+            if (survivors.size() >= topK) {
+                kthBenefit = benefits.get(survivors.stream().sorted(bestBenefitFirst).skip(topK - 1).findFirst().get());
+            }
+            if (queue.isEmpty() || kthBenefit >= bounds[queue.peek()]) {
+                break;
+            }
+            List<Integer> batch = new ArrayList<>();
+            int batchSize = survivors.size() < topK ? topK - survivors.size() : topK;
+            while (!queue.isEmpty() && batch.size() < batchSize && kthBenefit < bounds[queue.peek()]) {
+                int next = queue.poll();
+                MethodDeclaration method = sequences.get(next).getMethod();
+                if (created.getOrDefault(method, 0) < budget) {
+                    created.merge(method, 1, Integer::sum);
+                    batch.add(next);
+                }
+            }
+            List<ExtractedMethod> opportunities = batch.parallelStream()
+                    .map(i -> create.apply(sequences.get(i)))
+                    .collect(Collectors.toList());
+            for (int b = 0; b < batch.size(); b++) {
+                ExtractedMethod opportunity = opportunities.get(b);
+                if (opportunity != null) {
+                    found.put(batch.get(b), opportunity);
+                    indexes.put(opportunity, batch.get(b));
+                    benefits.put(opportunity, benefit.applyAsDouble(opportunity));
+                }
+            }
+            // the grouping depends on all the opportunities, so the created ones are grouped again
+            survivors = group.apply(new ArrayList<>(found.values()));
+        }
+        if (survivors.size() <= topK) {
+            return survivors;
+        }
+        // a new opportunity may release ones grouped with the opportunity it displaces, the best ones are kept
+        return survivors.stream()
+                .sorted(bestBenefitFirst)
+                .limit(topK)
+                .sorted(Comparator.comparing(indexes::get))
+                .collect(Collectors.toList());
+    }
+}
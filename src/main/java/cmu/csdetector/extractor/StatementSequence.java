@@ -0,0 +1,118 @@
+package cmu.csdetector.extractor;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
+
+import java.util.List;
+
+/**
+ * An opportunity as the contiguous statements [from, to] of a block of the resource AST.
+ * Being whole sibling statements, the sequence can always be moved to a method of its own.
+ */
+public class StatementSequence {
+
+    private final Block block;
+
+    private final int from;
+
+    private final int to;
+
+    private final int startLine;
+
+    private final int endLine;
+
+    public StatementSequence(Block block, int from, int to) {
+        this.block = block;
+        this.from = from;
+        this.to = to;
+        CompilationUnit cu = (CompilationUnit) block.getRoot();
+        Statement first = this.getFirstStatement();
+        Statement last = this.getLastStatement();
+        this.startLine = cu.getLineNumber(first.getStartPosition());
+        this.endLine = cu.getLineNumber(last.getStartPosition() + last.getLength() - 1);
+    }
+
+    public Block getBlock() {
+        return block;
+    }
+
+    /**
+     * The method declaring the block, or null if the block is not in a method
+     */
+    public MethodDeclaration getMethod() {
+        ASTNode node = block;
+        while (node != null && !(node instanceof MethodDeclaration)) {
+            node = node.getParent();
+        }
+        return (MethodDeclaration) node;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTo() {
+        return to;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Statement> getStatements() {
+        return ((List<Statement>) block.statements()).subList(from, to + 1);
+    }
+
+    public Statement getFirstStatement() {
+        return (Statement) block.statements().get(from);
+    }
+
+    public Statement getLastStatement() {
+        return (Statement) block.statements().get(to);
+    }
+
+    /**
+     * Offset of the first character of the sequence in the source
+     */
+    public int getStartPosition() {
+        return this.getFirstStatement().getStartPosition();
+    }
+
+    /**
+     * Offset right after the last character of the sequence in the source
+     */
+    public int getEndPosition() {
+        Statement last = this.getLastStatement();
+        return last.getStartPosition() + last.getLength();
+    }
+
+    public int getStartLine() {
+        return startLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatementSequence)) {
+            return false;
+        }
+        StatementSequence other = (StatementSequence) o;
+        return block == other.block && from == other.from && to == other.to;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * System.identityHashCode(block) + from) + to;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + startLine + " - " + endLine + "]";
+    }
+}
@@ -0,0 +1,124 @@
+package cmu.csdetector.extractor;
+
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.*;
+
+/**
+ * Maps the line ranges of the opportunities to statement sequences of the resource AST.
+ *
+ * A range is mapped to the longest run of sibling statements lying entirely within it, in any block of the
+ * method bodies of the resource (blocks of lambdas, anonymous and local classes and initializers are left out).
+ * Ranges mapped to the same run give a single sequence, and ranges holding no whole statement give none.
+ */
+public class StatementSequenceFinder {
+
+    private final List<Block> blocks = new ArrayList<>();
+
+    /**
+     * startLines[b][i] and endLines[b][i] are the lines of the statement i of the block b
+     */
+    private final List<int[]> startLines = new ArrayList<>();
+
+    private final List<int[]> endLines = new ArrayList<>();
+
+    public StatementSequenceFinder(ASTNode resource) {
+        CompilationUnit cu = (CompilationUnit) resource.getRoot();
+        resource.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(LambdaExpression node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(AnonymousClassDeclaration node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(TypeDeclarationStatement node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(Initializer node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(Block node) {
+                List<?> statements = node.statements();
+                if (!statements.isEmpty()) {
+                    int[] starts = new int[statements.size()];
+                    int[] ends = new int[statements.size()];
+                    for (int i = 0; i < statements.size(); i++) {
+                        Statement statement = (Statement) statements.get(i);
+                        starts[i] = cu.getLineNumber(statement.getStartPosition());
+                        ends[i] = cu.getLineNumber(statement.getStartPosition() + statement.getLength() - 1);
+                    }
+                    blocks.add(node);
+                    startLines.add(starts);
+                    endLines.add(ends);
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * The longest run of sibling statements within the lines [startLine, endLine], the outermost one on a tie
+     *
+     * @return the sequence, or null if no statement lies entirely within the lines
+     */
+    public StatementSequence find(int startLine, int endLine) {
+        int bestBlock = -1;
+        int bestFrom = -1;
+        int bestTo = -1;
+        int bestLines = 0;
+        for (int b = 0; b < blocks.size(); b++) {
+            int[] starts = startLines.get(b);
+            int[] ends = endLines.get(b);
+            if (starts[0] > endLine || ends[ends.length - 1] < startLine) {
+                continue;
+            }
+            int from = Arrays.binarySearch(starts, startLine);
+            if (from < 0) {
+                from = -from - 1;
+            } else {
+                // several statements may start on the line
+                while (from > 0 && starts[from - 1] == startLine) {
+                    from--;
+                }
+            }
+            int to = from - 1;
+            while (to + 1 < ends.length && ends[to + 1] <= endLine) {
+                to++;
+            }
+            if (to < from) {
+                continue;
+            }
+            int lines = ends[to] - starts[from] + 1;
+            if (lines > bestLines) {
+                bestBlock = b;
+                bestFrom = from;
+                bestTo = to;
+                bestLines = lines;
+            }
+        }
+        return bestBlock < 0 ? null : new StatementSequence(blocks.get(bestBlock), bestFrom, bestTo);
+    }
+
+    /**
+     * The distinct sequences of the line ranges, in the order of the ranges
+     */
+    public List<StatementSequence> findAll(Collection<List<Integer>> ranges) {
+        Set<StatementSequence> sequences = new LinkedHashSet<>();
+        for (List<Integer> range : ranges) {
+            StatementSequence sequence = this.find(range.get(0), range.get(range.size() - 1));
+            if (sequence != null) {
+                sequences.add(sequence);
+            }
+        }
+        return new ArrayList<>(sequences);
+    }
+}
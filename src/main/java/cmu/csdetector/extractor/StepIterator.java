@@ -1,141 +1,492 @@
 package cmu.csdetector.extractor;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * An iterator that iterates over the statements table by given step.
  * It returns the group of line numbers that has the next opportunity to extract a method.
+ *
+ * Each variable has a row, a bitset of the lines it appears on. Rows are indexed from the first line of the table,
+ * so their size only depends on the length of the method, not on where it is in the file.
  */
 public class StepIterator {
-    private final SortedMap<Integer, Set<String>> line2vars;
-    private int startIndex;
-    private final Integer[] line2varsKeys;
-    private List<String> var2idx;
-    private int startline;
-    private int endline;
-    private int[][] matrix;
-
-    private int[] parent;
+    private final int startline;
+    private final int endline;
+    /**
+     * Number of lines from the first to the last line of the table
+     */
+    private final int length;
+    private final Map<String, Integer> var2idx;
+    /**
+     * rows[v] has the bit (line - startline) set if the variable v appears on the line
+     */
+    private final long[][] rows;
+    /**
+     * maxEnd[i] is the largest end of the intervals starting on the line (startline + i), -1 if none does
+     */
+    private final int[] maxEnd;
 
 
     public StepIterator(SortedMap<Integer, Set<String>> line2vars) {
-        this.line2vars = line2vars;
-        this.startline = this.line2vars.firstKey();
-        this.endline  = this.line2vars.lastKey();
-        this.line2varsKeys = line2vars.keySet().toArray(new Integer[0]);
-        this.var2idx = this.varDict();
-        this.matrix = this.convertMatrix();
-        this.startIndex = 0;
+        this.startline = line2vars.firstKey();
+        this.endline = line2vars.lastKey();
+        this.length = this.endline - this.startline + 1;
+        this.var2idx = new HashMap<>();
+        this.rows = this.convertRows(line2vars);
+        this.maxEnd = new int[this.length];
     }
 
-
-    private List<String> varDict (){
-        HashSet<String> mergedSet = new HashSet<>();
-        this.line2vars.forEach((k, value) -> {mergedSet.addAll(value);});
-        List<String> mergedList = new ArrayList<>(mergedSet);
-        return mergedList;
-    }
-
-    private int[][] convertMatrix() {
-        int[][] matrix = new int[var2idx.size()][this.endline + 1];
-        this.line2vars.forEach((key, value) -> {
-            for(String var: this.line2vars.get(key)) {
-                matrix[this.var2idx.indexOf(var)][key] = 1;
+    private long[][] convertRows(SortedMap<Integer, Set<String>> line2vars) {
+        int words = (this.length + 63) >>> 6;
+        List<long[]> rows = new ArrayList<>();
+        line2vars.forEach((line, vars) -> {
+            int bit = line - this.startline;
+            for (String var : vars) {
+                Integer idx = this.var2idx.get(var);
+                if (idx == null) {
+                    idx = rows.size();
+                    this.var2idx.put(var, idx);
+                    rows.add(new long[words]);
+                }
+                rows.get(idx)[bit >>> 6] |= 1L << bit;
             }
         });
-        return matrix;
-    }
-
-    private int findParent(int idx){
-        if(parent[idx] != idx && parent[idx] != 0){
-            return findParent(parent[idx]);
-        }
-        return idx;
-    }
-
-    private boolean hasOverlap(Set<String> variables_1, Set<String> variables_2){
-        if(variables_1 == null || variables_2 == null) return false;
-        Set<String> variables_1_copy = new HashSet<>(variables_1);
-        variables_1_copy.retainAll(variables_2);
-        return variables_1_copy.size() > 0;
+        return rows.toArray(new long[0][]);
     }
 
+    /**
+     * The merged intervals of all the steps, each step being derived from the previous one (see {@link StepEnumerator})
+     */
     public Set<List<Integer>> getAllOpportunities() {
         Set<List<Integer>> set = new HashSet<>();
+        if (this.length < 3) {
+            return set;
+        }
+        StepEnumerator enumerator = new StepEnumerator();
         for (int i = 1; i < this.endline - this.startline; i++) {
-            set.addAll(getIntervalsFromAllRows(i));
+            enumerator.advance(i, set);
         }
         return set;
     }
 
+    /**
+     * The intervals of all the rows for the given step, merged when they share a line, in the order of their start
+     */
     public List<List<Integer>> getIntervalsFromAllRows(int step) {
-        List<List<Integer>> allIntervals = new ArrayList<>();
-        for (int i = 0; i < this.var2idx.size(); i++ ) {
-            allIntervals.addAll(getIntervals(i, step));
+        Arrays.fill(this.maxEnd, -1);
+        for (long[] row : this.rows) {
+            this.addIntervals(row, step);
         }
 
-        Collections.sort(allIntervals, new Comparator<List<Integer>>() {
-            @Override
-            public int compare(List<Integer> a, List<Integer> b) {
-                return a.get(0) == b.get(0)? a.get(1)-b.get(1) : a.get(0)-b.get(0);
+        // the intervals are indexed by start, so sweeping the lines visits them in order
+        List<List<Integer>> res = new ArrayList<>();
+        int mergedStart = -1;
+        int mergedEnd = -1;
+        for (int i = 0; i < this.length; i++) {
+            if (this.maxEnd[i] < 0) {
+                continue;
             }
-        });
+            if (mergedStart >= 0 && i <= mergedEnd) {
+                mergedEnd = Math.max(mergedEnd, this.maxEnd[i]);
+            } else {
+                if (mergedStart >= 0) {
+                    res.add(Arrays.asList(this.startline + mergedStart, this.startline + mergedEnd));
+                }
+                mergedStart = i;
+                mergedEnd = this.maxEnd[i];
+            }
+        }
+        if (mergedStart >= 0) {
+            res.add(Arrays.asList(this.startline + mergedStart, this.startline + mergedEnd));
+        }
+        return res;
+    }
 
-        List<List<Integer>> res = new ArrayList<>();
+    /**
+     * Chains the lines of the row that are at most step lines apart. Only the lines up to (endline + 1 - step) are
+     * considered, and only the chains spanning at least step lines are kept.
+     */
+    private void addIntervals(long[] row, int step) {
+        int limit = this.endline + 1 - step - this.startline;
+        int chainStart = -1;
+        int chainEnd = -1;
+        scan:
+        for (int w = 0; w < row.length; w++) {
+            for (long word = row[w]; word != 0; word &= word - 1) {
+                int line = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (line > limit) {
+                    break scan;
+                }
+                if (chainStart < 0) {
+                    chainStart = line;
+                } else if (line - chainEnd > step) {
+                    this.addInterval(chainStart, chainEnd, step);
+                    chainStart = line;
+                }
+                chainEnd = line;
+            }
+        }
+        if (chainStart >= 0) {
+            this.addInterval(chainStart, chainEnd, step);
+        }
+    }
+
+    private void addInterval(int start, int end, int step) {
+        if (end - start >= step && end > this.maxEnd[start]) {
+            this.maxEnd[start] = end;
+        }
+    }
+
+    /**
+     * Enumerates the merged intervals step by step. From one step to the next, the intervals of a row only change by:
+     * 		the chains joined by a gap of exactly the new step, taken from the gaps sorted by length and joined with a union-find
+     * 		the chains losing their last line, as the last line considered moves up by one
+     * 		the chains no longer spanning enough lines
+     * The chains kept by all rows are counted on every line segment in a {@link CoverageTree}, so only the merged intervals
+     * around the changed chains are looked up again, the others being the same as in the previous step.
+     */
+    private class StepEnumerator {
+        /**
+         * The occurrences of every row, in line order, the ones of row v being from offsets[v] to offsets[v + 1]
+         */
+        private final int[] occurrenceLines;
+        private final int[] occurrenceRows;
+        private final int[] offsets;
+        /**
+         * The occurrences are the elements of the union-find; a root holds the first and last occurrences of its chain
+         */
+        private final int[] parent;
+        private final int[] first;
+        private final int[] last;
+        /**
+         * The interval of the chain of a root, if it is kept by the current step
+         */
+        private final boolean[] active;
+        private final int[] activeStart;
+        private final int[] activeEnd;
+        /**
+         * alive[v] is the number of occurrences of row v up to the last line considered
+         */
+        private final int[] alive;
+        /**
+         * The gaps, by length, as the first occurrence of each gap
+         */
+        private final int[][] gapsByLength;
+        /**
+         * The occurrences on each line
+         */
+        private final int[][] occurrencesByLine;
+        /**
+         * The roots activated with each span, some of them being outdated
+         */
+        private final IntList[] rootsBySpan;
+        private final CoverageTree coverage;
+
+        private final IntList touched = new IntList();
+        private final int[] touchedStamp;
+        private final IntList dirty = new IntList();
+        private int step;
+
+        StepEnumerator() {
+            int count = 0;
+            for (long[] row : rows) {
+                for (long word : row) {
+                    count += Long.bitCount(word);
+                }
+            }
+            this.occurrenceLines = new int[count];
+            this.occurrenceRows = new int[count];
+            this.offsets = new int[rows.length + 1];
+            this.alive = new int[rows.length];
+            int[] gapCounts = new int[length];
+            int[] lineCounts = new int[length];
+            int g = 0;
+            for (int v = 0; v < rows.length; v++) {
+                this.offsets[v] = g;
+                long[] row = rows[v];
+                for (int w = 0; w < row.length; w++) {
+                    for (long word = row[w]; word != 0; word &= word - 1) {
+                        int line = (w << 6) + Long.numberOfTrailingZeros(word);
+                        this.occurrenceLines[g] = line;
+                        this.occurrenceRows[g] = v;
+                        lineCounts[line]++;
+                        if (g > this.offsets[v]) {
+                            gapCounts[line - this.occurrenceLines[g - 1]]++;
+                        }
+                        g++;
+                    }
+                }
+                this.alive[v] = g - this.offsets[v];
+            }
+            this.offsets[rows.length] = g;
 
-        if (allIntervals.size() == 0) return  res;
-        res.add(allIntervals.get(0));
+            this.gapsByLength = new int[length][];
+            this.occurrencesByLine = new int[length][];
+            for (int i = 0; i < length; i++) {
+                this.gapsByLength[i] = new int[gapCounts[i]];
+                this.occurrencesByLine[i] = new int[lineCounts[i]];
+            }
+            Arrays.fill(gapCounts, 0);
+            Arrays.fill(lineCounts, 0);
+            for (g = 0; g < count; g++) {
+                int line = this.occurrenceLines[g];
+                this.occurrencesByLine[line][lineCounts[line]++] = g;
+                if (g + 1 < this.offsets[this.occurrenceRows[g] + 1]) {
+                    int gap = this.occurrenceLines[g + 1] - line;
+                    this.gapsByLength[gap][gapCounts[gap]++] = g;
+                }
+            }
 
-        for(int i=1; i<allIntervals.size(); i++){
-            List<Integer> last = res.get(res.size()-1);
-            if(last.get(1) < allIntervals.get(i).get(0)){
-                res.add(allIntervals.get(i));
-            }else{
-                last.set(1, Math.max(allIntervals.get(i).get(1), last.get(1)) );
+            this.parent = new int[count];
+            this.first = new int[count];
+            this.last = new int[count];
+            for (g = 0; g < count; g++) {
+                this.parent[g] = g;
+                this.first[g] = g;
+                this.last[g] = g;
             }
+            this.active = new boolean[count];
+            this.activeStart = new int[count];
+            this.activeEnd = new int[count];
+            this.touchedStamp = new int[count];
+            this.rootsBySpan = new IntList[length];
+            this.coverage = new CoverageTree(length - 1);
         }
 
-        return res;
-    }
+        private int find(int g) {
+            while (this.parent[g] != g) {
+                this.parent[g] = this.parent[this.parent[g]];
+                g = this.parent[g];
+            }
+            return g;
+        }
+
+        /**
+         * Moves to the given step, the next one, and adds the merged intervals that were not in the previous step
+         */
+        void advance(int step, Set<List<Integer>> set) {
+            this.step = step;
+
+            // chains no longer spanning enough lines
+            IntList expired = this.rootsBySpan[step - 1];
+            if (expired != null) {
+                for (int i = 0; i < expired.size; i++) {
+                    int root = expired.data[i];
+                    if (this.parent[root] == root && this.active[root] && this.activeEnd[root] - this.activeStart[root] == step - 1) {
+                        this.touch(root);
+                    }
+                }
+                this.rootsBySpan[step - 1] = null;
+            }
+
+            // the line that is no longer considered
+            int dropped = length - step + 1;
+            if (dropped < length) {
+                for (int g : this.occurrencesByLine[dropped]) {
+                    this.alive[this.occurrenceRows[g]]--;
+                    this.touch(this.find(g));
+                }
+            }
 
+            // chains joined by a gap of the step
+            for (int g : this.gapsByLength[step]) {
+                int left = this.find(g);
+                int right = this.find(g + 1);
+                this.touch(left);
+                this.touch(right);
+                this.parent[right] = left;
+                this.last[left] = this.last[right];
+            }
 
-    private List<List<Integer>> getIntervals(int row, int step) {
-        List<List<Integer>> intervals = new ArrayList<>();
-        List<Integer> lastInterval = Arrays.asList(-step,-step);
-        for (int j = 1; j <= this.endline + 1 - step; j++) {
-            if (matrix[row][j] == 1) {
-                if (lastInterval.get(1) < j - step) {
-                    intervals.add(lastInterval);
-                    lastInterval = Arrays.asList(j,j);;
-                } else {
-                    lastInterval.set(1, j);
+            for (int i = 0; i < this.touched.size; i++) {
+                int root = this.touched.data[i];
+                if (this.parent[root] == root) {
+                    this.activate(root);
                 }
             }
+            this.touched.clear();
+
+            this.addChangedIntervals(set);
         }
 
-        intervals.add(lastInterval);
-        intervals.remove(0);
-        return intervals.stream().filter(in -> in.get(1) - in.get(0) >= step).collect(Collectors.toList());
-    }
+        /**
+         * Removes the interval of the root, to be computed again at the end of the step
+         */
+        private void touch(int root) {
+            if (this.active[root]) {
+                this.active[root] = false;
+                this.coverage.add(this.activeStart[root], this.activeEnd[root] - 1, -1);
+                this.markDirty(this.activeStart[root], this.activeEnd[root]);
+            }
+            if (this.touchedStamp[root] != this.step) {
+                this.touchedStamp[root] = this.step;
+                this.touched.add(root);
+            }
+        }
 
+        private void activate(int root) {
+            int row = this.occurrenceRows[root];
+            int lastAlive = Math.min(this.last[root], this.offsets[row] + this.alive[row] - 1);
+            if (lastAlive < this.first[root]) {
+                return;
+            }
+            int start = this.occurrenceLines[this.first[root]];
+            int end = this.occurrenceLines[lastAlive];
+            if (end - start < this.step) {
+                return;
+            }
+            this.active[root] = true;
+            this.activeStart[root] = start;
+            this.activeEnd[root] = end;
+            this.coverage.add(start, end - 1, 1);
+            this.markDirty(start, end);
+            if (this.rootsBySpan[end - start] == null) {
+                this.rootsBySpan[end - start] = new IntList();
+            }
+            this.rootsBySpan[end - start].add(root);
+        }
+
+        /**
+         * The merged intervals touching the segments of the lines [start, end], or the segments right around them, may have changed
+         */
+        private void markDirty(int start, int end) {
+            this.dirty.add(Math.max(0, start - 1));
+            this.dirty.add(Math.min(this.coverage.size - 1, end));
+        }
+
+        private void addChangedIntervals(Set<List<Integer>> set) {
+            TreeMap<Integer, Integer> changed = new TreeMap<>();
+            for (int i = 0; i < this.dirty.size; i += 2) {
+                int to = this.dirty.data[i + 1];
+                for (int segment = this.coverage.nextCovered(this.dirty.data[i]); segment <= to; ) {
+                    int start = this.coverage.previousUncovered(segment) + 1;
+                    int end = this.coverage.nextUncovered(segment);
+                    changed.put(start, end);
+                    segment = this.coverage.nextCovered(end);
+                }
+            }
+            this.dirty.clear();
+            changed.forEach((start, end) -> set.add(Arrays.asList(startline + start, startline + end)));
+        }
+    }
 
     /**
-     * Check if a list of sets share the same elements.
+     * Number of intervals covering each segment between two consecutive lines, segment i being between the lines i and i + 1.
+     * The merged intervals are the runs of covered segments.
      */
-    private boolean haveOverlap(List<Set<String>> list) {
-        if (list.size() == 0) {
-            return false;
+    private static class CoverageTree {
+        private final int size;
+        private final int[] min;
+        private final int[] max;
+        private final int[] pending;
+
+        CoverageTree(int size) {
+            this.size = size;
+            this.min = new int[4 * size];
+            this.max = new int[4 * size];
+            this.pending = new int[4 * size];
+        }
+
+        /**
+         * Adds the delta to the segments [from, to]
+         */
+        void add(int from, int to, int delta) {
+            this.add(1, 0, this.size - 1, from, to, delta);
         }
-        // make a copy of the first set
-        Set<String> first = new HashSet<>(list.get(0));
-        // keep intersecting until the first set is empty or all sets are checked
-        for (int i = 1; i < list.size(); i++) {
-            first.retainAll(list.get(i));
-            if (first.size() == 0) {
-                return false;
+
+        private void add(int node, int lo, int hi, int from, int to, int delta) {
+            if (to < lo || hi < from) {
+                return;
+            }
+            if (from <= lo && hi <= to) {
+                this.apply(node, delta);
+                return;
+            }
+            this.push(node);
+            int mid = (lo + hi) >>> 1;
+            this.add(2 * node, lo, mid, from, to, delta);
+            this.add(2 * node + 1, mid + 1, hi, from, to, delta);
+            this.min[node] = Math.min(this.min[2 * node], this.min[2 * node + 1]);
+            this.max[node] = Math.max(this.max[2 * node], this.max[2 * node + 1]);
+        }
+
+        private void apply(int node, int delta) {
+            this.min[node] += delta;
+            this.max[node] += delta;
+            this.pending[node] += delta;
+        }
+
+        private void push(int node) {
+            if (this.pending[node] != 0) {
+                this.apply(2 * node, this.pending[node]);
+                this.apply(2 * node + 1, this.pending[node]);
+                this.pending[node] = 0;
+            }
+        }
+
+        /**
+         * First covered segment from the given one, size if there is none
+         */
+        int nextCovered(int from) {
+            int found = this.next(1, 0, this.size - 1, from, true);
+            return found < 0 ? this.size : found;
+        }
+
+        /**
+         * First uncovered segment from the given one, size if there is none
+         */
+        int nextUncovered(int from) {
+            int found = this.next(1, 0, this.size - 1, from, false);
+            return found < 0 ? this.size : found;
+        }
+
+        /**
+         * Last uncovered segment up to the given one, -1 if there is none
+         */
+        int previousUncovered(int to) {
+            return this.previous(1, 0, this.size - 1, to);
+        }
+
+        private int next(int node, int lo, int hi, int from, boolean covered) {
+            if (hi < from || (covered ? this.max[node] == 0 : this.min[node] > 0)) {
+                return -1;
+            }
+            if (lo == hi) {
+                return lo;
+            }
+            this.push(node);
+            int mid = (lo + hi) >>> 1;
+            int found = this.next(2 * node, lo, mid, from, covered);
+            return found >= 0 ? found : this.next(2 * node + 1, mid + 1, hi, from, covered);
+        }
+
+        private int previous(int node, int lo, int hi, int to) {
+            if (lo > to || this.min[node] > 0) {
+                return -1;
+            }
+            if (lo == hi) {
+                return lo;
             }
+            this.push(node);
+            int mid = (lo + hi) >>> 1;
+            int found = this.previous(2 * node + 1, mid + 1, hi, to);
+            return found >= 0 ? found : this.previous(2 * node, lo, mid, to);
+        }
+    }
+
+    private static class IntList {
+        private int[] data = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (this.size == this.data.length) {
+                this.data = Arrays.copyOf(this.data, 2 * this.size);
+            }
+            this.data[this.size++] = value;
+        }
+
+        void clear() {
+            this.size = 0;
         }
-        return true;
     }
 }
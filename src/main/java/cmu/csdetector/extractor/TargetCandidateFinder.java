@@ -0,0 +1,111 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.resources.TypeRegistry;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.*;
+
+/**
+ * Finds the classes an opportunity may be moved to from what its statements reference, rather than trying every class
+ * of the package:
+ * 		the classes declaring the methods it calls (the classes it envies)
+ * 		the classes declaring the fields it accesses, and the types of these fields
+ * 		the types of its parameters
+ *
+ * Every reference counts one, and the project classes referenced the most are the candidates, up to a maximum.
+ * Classes of any package are found through the {@link TypeRegistry}. The bindings of the opportunity are resolved,
+ * so it is used while holding the binding lock.
+ */
+public class TargetCandidateFinder {
+
+    public static final int DEFAULT_MAX_CANDIDATES = 5;
+
+    private final Type belongingType;
+
+    private final int maxCandidates;
+
+    public TargetCandidateFinder(Type belongingType, int maxCandidates) {
+        this.belongingType = belongingType;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * The candidate classes for the opportunity, the most referenced first
+     *
+     * @param sequence the statements of the opportunity in the original method
+     * @param parameters the parameters of the extracted method
+     */
+    public List<Type> findCandidates(StatementSequence sequence, List<IVariableBinding> parameters) {
+        // insertion ordered, so that classes referenced as many times keep the order of their first reference
+        Map<Type, Integer> references = new LinkedHashMap<>();
+        for (Statement statement : sequence.getStatements()) {
+            statement.accept(new ASTVisitor() {
+                @Override
+                public boolean visit(MethodInvocation node) {
+                    IMethodBinding binding = node.resolveMethodBinding();
+                    if (binding != null) {
+                        addReference(references, binding.getDeclaringClass());
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean visit(SuperMethodInvocation node) {
+                    IMethodBinding binding = node.resolveMethodBinding();
+                    if (binding != null) {
+                        addReference(references, binding.getDeclaringClass());
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean visit(SimpleName node) {
+                    IBinding binding = node.resolveBinding();
+                    if (binding instanceof IVariableBinding && ((IVariableBinding) binding).isField()) {
+                        IVariableBinding field = (IVariableBinding) binding;
+                        addReference(references, field.getDeclaringClass());
+                        addReference(references, field.getType());
+                    }
+                    return true;
+                }
+            });
+        }
+        for (IVariableBinding parameter : parameters) {
+            addReference(references, parameter.getType());
+        }
+
+        List<Type> candidates = new ArrayList<>(references.keySet());
+        candidates.sort(Comparator.comparingInt((Type type) -> references.get(type)).reversed());
+        return candidates.subList(0, Math.min(maxCandidates, candidates.size()));
+    }
+
+    private void addReference(Map<Type, Integer> references, ITypeBinding binding) {
+        Type type = this.findProjectType(binding);
+        if (type != null) {
+            references.merge(type, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * The project class of the binding (the element class for an array), or null for the belonging class and for
+     * types out of the project
+     */
+    private Type findProjectType(ITypeBinding binding) {
+        if (binding == null) {
+            return null;
+        }
+        if (binding.isArray()) {
+            binding = binding.getElementType();
+        }
+        binding = binding.getErasure();
+        if (!binding.isClass() || binding.isAnonymous() || binding.isLocal()) {
+            return null;
+        }
+        Type type = TypeRegistry.getInstance().getType(binding.getQualifiedName());
+        if (type == null || type.getNode() == null || type == belongingType) {
+            return null;
+        }
+        return type;
+    }
+}
@@ -0,0 +1,127 @@
+package cmu.csdetector.extractor.evaluator;
+
+import cmu.csdetector.extractor.evaluator.ClassCohesionProfile.CohesionCounts;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates the move of an extracted method to a target class without applying the refactoring. LCOM only depends
+ * on the number of methods, the number of attributes and the sum of the fields accessed by each method, so the LCOM
+ * after the move is derived from the profiles of both classes:
+ * 		the source class keeps its methods, but the method holding the opportunity loses the fields only
+ * 		accessed by the extracted lines
+ * 		the target class gets one more method, accessing the fields of the target hierarchy the extracted lines access
+ */
+public class AnalyticLCOMEvaluator implements IRefactoringEvaluator {
+
+    private final ClassCohesionProfile sourceProfile;
+
+    private final ClassCohesionProfile targetProfile;
+
+    private final int startLine;
+
+    private final int endLine;
+
+    private CohesionCounts originalSourceCounts;
+    private CohesionCounts originalTargetCounts;
+    private CohesionCounts refactoredSourceCounts;
+    private CohesionCounts refactoredTargetCounts;
+
+    private final Map<String, Double> beforeRefactorMetrics;
+    private final Map<String, Double> afterRefactorMetrics;
+
+    /**
+     * @param sourceProfile profile of the class that the extracted method is moved from
+     * @param targetProfile profile of the class that the extracted method is moved to
+     * @param startLine first line of the opportunity in the source class
+     * @param endLine last line of the opportunity in the source class
+     */
+    public AnalyticLCOMEvaluator(ClassCohesionProfile sourceProfile, ClassCohesionProfile targetProfile, int startLine, int endLine) {
+        this.sourceProfile = sourceProfile;
+        this.targetProfile = targetProfile;
+        this.startLine = startLine;
+        this.endLine = endLine;
+        this.beforeRefactorMetrics = new HashMap<>();
+        this.afterRefactorMetrics = new HashMap<>();
+    }
+
+    public void evaluate() {
+        this.originalSourceCounts = sourceProfile.getCounts();
+        this.originalTargetCounts = targetProfile.getCounts();
+        this.refactoredSourceCounts = sourceProfile.getCountsWithoutLines(startLine, endLine);
+        Set<String> extractedFields = sourceProfile.getFieldsAccessedBetween(startLine, endLine);
+        this.refactoredTargetCounts = targetProfile.getCountsWithMethod(extractedFields);
+
+        this.beforeRefactorMetrics.put("SourceClassLCOM", getOriginalSourceClassLCOM());
+        this.beforeRefactorMetrics.put("TargetClassLCOM", getOriginalTargetClassLCOM());
+        this.afterRefactorMetrics.put("SourceClassLCOM", getRefactoredSourceClassLCOM());
+        this.afterRefactorMetrics.put("TargetClassLCOM", getRefactoredTargetClassLCOM());
+    }
+
+    public Double getOriginalSourceClassLCOM() {
+        return originalSourceCounts.getLCOM3();
+    }
+
+    public Double getOriginalTargetClassLCOM() {
+        return originalTargetCounts.getLCOM3();
+    }
+
+    public Double getRefactoredSourceClassLCOM() {
+        return refactoredSourceCounts.getLCOM3();
+    }
+
+    public Double getRefactoredTargetClassLCOM() {
+        return refactoredTargetCounts.getLCOM3();
+    }
+
+    public CohesionCounts getOriginalSourceCounts() {
+        return originalSourceCounts;
+    }
+
+    public CohesionCounts getOriginalTargetCounts() {
+        return originalTargetCounts;
+    }
+
+    public CohesionCounts getRefactoredSourceCounts() {
+        return refactoredSourceCounts;
+    }
+
+    public CohesionCounts getRefactoredTargetCounts() {
+        return refactoredTargetCounts;
+    }
+
+    /**
+     * Calculate the benefit of the refactoring in terms of LCOM3 reduction (lower is better)
+     * @return LCOM reduction
+     */
+    public Double getReduction() {
+        return (getRefactoredSourceClassLCOM() + getRefactoredTargetClassLCOM()) - (getOriginalSourceClassLCOM() + getOriginalTargetClassLCOM());
+    }
+
+    /**
+     * Same as {@link #getReduction()}, with LCOM2
+     */
+    public Double getLCOM2Reduction() {
+        return (refactoredSourceCounts.getLCOM2() + refactoredTargetCounts.getLCOM2()) - (originalSourceCounts.getLCOM2() + originalTargetCounts.getLCOM2());
+    }
+
+    public void printEvaluation() {
+        System.out.println("* Target class: " + targetProfile.getType().getName().getFullyQualifiedName());
+        System.out.println("    Source class LCOM before refactoring: " + getOriginalSourceClassLCOM());
+        System.out.println("    Target class LCOM before refactoring: " + getOriginalTargetClassLCOM());
+        System.out.println("    Source class LCOM after refactoring: " + getRefactoredSourceClassLCOM());
+        System.out.println("    Target class LCOM after refactoring: " + getRefactoredTargetClassLCOM());
+        System.out.println("        LCOM reduction (improvement): " + getReduction());
+        System.out.println();
+    }
+
+    public Map<String, Double> getBeforeRefactorMetrics() {
+        return beforeRefactorMetrics;
+    }
+
+    public Map<String, Double> getAfterRefactorMetrics() {
+        return afterRefactorMetrics;
+    }
+}
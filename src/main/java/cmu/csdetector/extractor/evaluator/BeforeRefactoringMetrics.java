@@ -0,0 +1,76 @@
+package cmu.csdetector.extractor.evaluator;
+
+import cmu.csdetector.ast.ASTBuilder;
+import cmu.csdetector.metrics.MetricName;
+import cmu.csdetector.metrics.calculators.method.CyclomaticComplexityCalculator;
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Type;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The metrics of the classes before any refactoring, shared by all the evaluations of a run since they never change:
+ * 		the CC of the methods of a class, as collected by {@link cmu.csdetector.metrics.MethodMetricValueCollector}
+ * 		the cohesion profile of a class
+ *
+ * Each is computed once per class, the first time an evaluation needs it.
+ */
+public class BeforeRefactoringMetrics {
+
+    private static BeforeRefactoringMetrics singleton;
+
+    private final Map<Type, Map<String, Double>> methodComplexities;
+
+    private final Map<Type, ClassCohesionProfile> cohesionProfiles;
+
+    static {
+        singleton = new BeforeRefactoringMetrics();
+    }
+
+    private BeforeRefactoringMetrics() {
+        this.methodComplexities = new ConcurrentHashMap<>();
+        this.cohesionProfiles = new ConcurrentHashMap<>();
+    }
+
+    public static BeforeRefactoringMetrics getInstance() {
+        return singleton;
+    }
+
+    /**
+     * CC of each method of the type, keyed by the method qualified name. The values collected with the other metrics
+     * are used, the ones of methods whose metrics were not collected are computed.
+     */
+    public Map<String, Double> getMethodComplexities(Type type) {
+        return methodComplexities.computeIfAbsent(type, BeforeRefactoringMetrics::collectComplexities);
+    }
+
+    private static Map<String, Double> collectComplexities(Type type) {
+        Map<String, Double> complexities = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            Double complexity = method.getMetricValue(MetricName.CC);
+            if (complexity == null) {
+                complexity = new CyclomaticComplexityCalculator().getValue(method.getNode());
+            }
+            complexities.put(method.getFullyQualifiedName(), complexity);
+        }
+        return Collections.unmodifiableMap(complexities);
+    }
+
+    /**
+     * Cohesion profile of the type. Building it resolves the bindings of the type, so the binding lock is taken
+     * before the cache is looked up.
+     */
+    public ClassCohesionProfile getCohesionProfile(Type type) {
+        synchronized (ASTBuilder.BINDING_LOCK) {
+            return cohesionProfiles.computeIfAbsent(type, t -> new ClassCohesionProfile(t.getNodeAsTypeDeclaration()));
+        }
+    }
+
+    public void reset() {
+        this.methodComplexities.clear();
+        this.cohesionProfiles.clear();
+    }
+}
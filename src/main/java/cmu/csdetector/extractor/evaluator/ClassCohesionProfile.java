@@ -0,0 +1,241 @@
+package cmu.csdetector.extractor.evaluator;
+
+import cmu.csdetector.ast.visitors.MethodCollector;
+import cmu.csdetector.extractor.MethodLineProfile;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.*;
+
+/**
+ * The inputs of the LCOM metrics of a class, as computed by {@link cmu.csdetector.metrics.calculators.type.BaseLCOM}:
+ * the number of methods, the number of attributes in the hierarchy and, for each method, its {@link MethodLineProfile}
+ * telling the fields accessed by any range of lines. It is computed once per class, so the LCOM of the class after a move can be
+ * derived from it without changing or parsing anything.
+ */
+public class ClassCohesionProfile {
+
+    private final TypeDeclaration type;
+
+    /**
+     * False when the type has no binding, in which case every LCOM is 0
+     */
+    private final boolean resolved;
+
+    private final int attributeCount;
+
+    /**
+     * Binding keys of all the fields in the hierarchy, including private fields of the superclasses,
+     * as ClassFieldAccessCollector sees them
+     */
+    private final Set<String> fieldsInHierarchy;
+
+    private final List<MethodProfile> methods;
+
+    private final int accessSum;
+
+    public ClassCohesionProfile(TypeDeclaration type) {
+        this.type = type;
+        ITypeBinding binding = type.resolveBinding();
+        this.resolved = binding != null;
+        this.fieldsInHierarchy = new HashSet<>();
+        this.methods = new ArrayList<>();
+        if (!resolved) {
+            this.attributeCount = 0;
+            this.accessSum = 0;
+            return;
+        }
+        this.attributeCount = countAttributes(binding);
+        for (ITypeBinding current = binding; current != null; current = current.getSuperclass()) {
+            for (IVariableBinding field : current.getDeclaredFields()) {
+                this.fieldsInHierarchy.add(field.getKey());
+            }
+        }
+
+        MethodCollector collector = new MethodCollector();
+        type.accept(collector);
+        int sum = 0;
+        for (MethodDeclaration md : collector.getNodesCollected()) {
+            MethodProfile method = new MethodProfile(new MethodLineProfile(md), fieldsInHierarchy);
+            this.methods.add(method);
+            sum += method.accessedFieldCount;
+        }
+        this.accessSum = sum;
+    }
+
+    /**
+     * Same rule as BaseLCOM: all the fields of the class and the non private fields of its superclasses
+     */
+    private static int countAttributes(ITypeBinding binding) {
+        Set<IVariableBinding> variables = new HashSet<>(Arrays.asList(binding.getDeclaredFields()));
+        for (ITypeBinding type = binding.getSuperclass(); type != null; type = type.getSuperclass()) {
+            for (IVariableBinding variable : type.getDeclaredFields()) {
+                if (variable.getModifiers() != Modifier.PRIVATE) {
+                    variables.add(variable);
+                }
+            }
+        }
+        return variables.size();
+    }
+
+    public TypeDeclaration getType() {
+        return type;
+    }
+
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    public int getAttributeCount() {
+        return attributeCount;
+    }
+
+    public Set<String> getFieldsInHierarchy() {
+        return Collections.unmodifiableSet(fieldsInHierarchy);
+    }
+
+    /**
+     * Line profiles of the methods of the class, in declaration order
+     */
+    public List<MethodLineProfile> getMethodProfiles() {
+        List<MethodLineProfile> profiles = new ArrayList<>();
+        for (MethodProfile method : methods) {
+            profiles.add(method.lines);
+        }
+        return profiles;
+    }
+
+    public CohesionCounts getCounts() {
+        return new CohesionCounts(resolved, methods.size(), attributeCount, accessSum);
+    }
+
+    /**
+     * Counts of the class once the lines [startLine, endLine] are extracted from the method holding them
+     * (the method itself stays in the class)
+     */
+    public CohesionCounts getCountsWithoutLines(int startLine, int endLine) {
+        MethodProfile host = this.findMethodHolding(startLine);
+        if (host == null) {
+            return this.getCounts();
+        }
+        int remaining = host.countFieldsOutside(startLine, endLine);
+        return new CohesionCounts(resolved, methods.size(), attributeCount, accessSum - host.accessedFieldCount + remaining);
+    }
+
+    /**
+     * Counts of this class once a method accessing the given fields (by binding key) is added to it.
+     * Only the fields of this class hierarchy count, as the added method is resolved against this class.
+     */
+    public CohesionCounts getCountsWithMethod(Set<String> accessedFields) {
+        int accessed = 0;
+        for (String field : accessedFields) {
+            if (fieldsInHierarchy.contains(field)) {
+                accessed++;
+            }
+        }
+        return new CohesionCounts(resolved, methods.size() + 1, attributeCount, accessSum + accessed);
+    }
+
+    /**
+     * Binding keys of the distinct fields, of any class, accessed between the given lines
+     */
+    public Set<String> getFieldsAccessedBetween(int startLine, int endLine) {
+        MethodProfile host = this.findMethodHolding(startLine);
+        if (host == null) {
+            return new HashSet<>();
+        }
+        return host.lines.getFieldsAccessed(startLine, endLine);
+    }
+
+    /**
+     * Line profile of the method holding the given line, or null if no method of the class holds it
+     */
+    public MethodLineProfile getMethodHolding(int line) {
+        MethodProfile method = this.findMethodHolding(line);
+        return method == null ? null : method.lines;
+    }
+
+    private MethodProfile findMethodHolding(int line) {
+        for (MethodProfile method : methods) {
+            if (method.lines.contains(line)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static class MethodProfile {
+        private final MethodLineProfile lines;
+        /**
+         * Bits of the class fields among the fields accessed by the method
+         */
+        private final long[] classFieldsMask;
+        private final int accessedFieldCount;
+
+        MethodProfile(MethodLineProfile lines, Set<String> classFields) {
+            this.lines = lines;
+            this.classFieldsMask = lines.getMask(classFields);
+            this.accessedFieldCount = MethodLineProfile.countBits(lines.getFieldBits(lines.getFirstLine(), lines.getLastLine()), classFieldsMask);
+        }
+
+        /**
+         * Distinct class fields accessed out of the given lines
+         */
+        int countFieldsOutside(int from, int to) {
+            return MethodLineProfile.countBits(lines.getFieldBitsOutside(from, to), classFieldsMask);
+        }
+    }
+
+    /**
+     * Number of methods (m), number of attributes (a) and sum of the distinct fields accessed by each method (s)
+     * of a class, from which LCOM2 and LCOM3 follow.
+     */
+    public static class CohesionCounts {
+        private final boolean resolved;
+        private final int methods;
+        private final int attributes;
+        private final int accessSum;
+
+        public CohesionCounts(boolean resolved, int methods, int attributes, int accessSum) {
+            this.resolved = resolved;
+            this.methods = methods;
+            this.attributes = attributes;
+            this.accessSum = accessSum;
+        }
+
+        private boolean isPossibleLCOM() {
+            return resolved && methods != 0 && attributes != 0;
+        }
+
+        /**
+         * LCOM2 = 1 - s / (m * a)
+         */
+        public double getLCOM2() {
+            if (!isPossibleLCOM()) {
+                return 0.0;
+            }
+            return 1 - ((double) accessSum) / (methods * (double) attributes);
+        }
+
+        /**
+         * LCOM3 = (m - s / a) / (m - 1)
+         */
+        public double getLCOM3() {
+            if (!isPossibleLCOM() || methods == 1) {
+                return 0.0;
+            }
+            return (methods - ((double) accessSum) / attributes) / (methods - 1);
+        }
+
+        public int getMethods() {
+            return methods;
+        }
+
+        public int getAttributes() {
+            return attributes;
+        }
+
+        public int getAccessSum() {
+            return accessSum;
+        }
+    }
+}
@@ -1,185 +1,105 @@
 package cmu.csdetector.extractor.evaluator;
 
+import cmu.csdetector.ast.ASTBuilder;
 import cmu.csdetector.extractor.ExtractedMethod;
-import cmu.csdetector.metrics.calculators.method.CyclomaticComplexityCalculator;
-import cmu.csdetector.resources.Method;
-import cmu.csdetector.resources.loader.JavaFilesFinder;
-import cmu.csdetector.resources.loader.SourceFile;
-import cmu.csdetector.resources.loader.SourceFilesLoader;
-import org.eclipse.jdt.core.dom.*;
+import cmu.csdetector.extractor.MethodLineProfile;
+import cmu.csdetector.resources.Type;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
 import java.util.Map;
 
 
 /**
- * It applies the extract method refactoring, a.k.a. moving the extracted method to the target class.
- * We do this by making a copy of the source project, and then applying the refactoring on the copy.
- * Finally, we compare the LCOM of the target class and the source class before and after the refactoring.
+ * It applies the extract method refactoring, a.k.a. adding the extracted method to the source class.
+ * The refactoring is not applied on the code: the CC of a method only depends on its decision points,
+ * so the line profile of the method holding the opportunity tells the CC of both methods after the extraction:
+ * 		the extracted method gets the decision points of the extracted lines
+ * 		the method holding the opportunity loses them
+ * Finally, we compare the CC of the methods of the source class before and after the refactoring,
+ * the CC before being the one collected with the metrics of the class.
  */
 public class RefactoringCCEvaluator implements IRefactoringEvaluator {
     /**
-     * The source project, read-only
-     * e.g. SmellDetector/examples/ComplexClass or SmellDetector/examples/RefactoringExample
+     * The source class that the extracted method is moved from
      */
-    private final Path sourceProject;
+    private final Type sourceType;
 
-    /**
-     * The target project. It will be a copy of the source project, and the refactoring is applied on this project.
-     * It should not exist before the refactoring.
-     * In the end of the lifetime of this class, the target project is deleted.
-     */
-    private final Path targetProject;
+    private final TypeDeclaration sourceClass;
 
     /**
-     * The source class that the extracted method is moved from
+     * The line profile of the method holding the opportunity, null if no method of the source class holds it
      */
-    private final TypeDeclaration sourceClass;
+    private final MethodLineProfile hostProfile;
 
     /**
      * The extracted method we are going to move, a.k.a, opportunity
      */
     private final ExtractedMethod extractedMethod;
-    /**
-     * Used to replace the file content of the source class with the opportunity extracted code
-     */
 
     private Map<String, Double> beforeRefactorMetrics;
     private Map<String, Double> afterRefactorMetrics;
 
-    public RefactoringCCEvaluator(Path sourceProject, TypeDeclaration sourceClass, ExtractedMethod extractedMethod) {
-        this.sourceProject = sourceProject;
-        this.targetProject = sourceProject.resolveSibling(sourceProject.getFileName() + "_refactored");
-        this.sourceClass = sourceClass;
+    public RefactoringCCEvaluator(Type sourceType, MethodLineProfile hostProfile, ExtractedMethod extractedMethod) {
+        this.sourceType = sourceType;
+        this.sourceClass = sourceType.getNodeAsTypeDeclaration();
+        this.hostProfile = hostProfile;
         this.extractedMethod = extractedMethod;
     }
 
-    private Map<String, Double> calcCC(cmu.csdetector.resources.Type type) {
-        Map<String, Double> map = new HashMap<>();
-        for (Method method : type.getMethods()) {
-            map.put(method.getFullyQualifiedName(), new CyclomaticComplexityCalculator().getValue(method.getNode()));
-        }
-        return map;
-    }
-
-
     /**
-     * Clean up the target project directory
+     * The same qualified name {@link cmu.csdetector.resources.Method} gives to the declaration
      */
-    private void cleanUp() throws IOException {
-        Files.walkFileTree(targetProject, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Files.delete(file);
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                Files.delete(dir);
-                return FileVisitResult.CONTINUE;
-            }
-        });
-    }
-
-    /**
-     * Copy the source project to the target project while applying the extract method refactoring
-     */
-    private void applyRefactoring() throws IOException {
-
-        Files.walkFileTree(sourceProject, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                Path targetPath = targetProject.resolve(sourceProject.relativize(dir));
-                if (!Files.exists(targetPath)) {
-                    Files.createDirectory(targetPath);
-                }
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFile(Path sourceFilepath, BasicFileAttributes attrs) throws IOException {
-                Path targetFilepath = targetProject.resolve(sourceProject.relativize(sourceFilepath));
-                String sourceFileName = sourceFilepath.getFileName().toString();
-
-                if (sourceFileName.startsWith(sourceClass.getName().getFullyQualifiedName())) {
-                    insertExtractedMethodToTarget();
-                    String targetSrcCode = extractedMethod.getRefactoredTypeDeclaration().getRoot().toString();
-                    Files.write(targetFilepath, targetSrcCode.getBytes());
-                }
-
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    private String getFullyQualifiedName(MethodDeclaration method) {
+        IMethodBinding binding;
+        synchronized (ASTBuilder.BINDING_LOCK) {
+            binding = method.resolveBinding();
+        }
+        if (binding == null) {
+            return null;
+        }
+        return binding.getDeclaringClass().getQualifiedName() + "." + method.getName();
     }
 
     /**
-     * Insert the extracted method to the target class
+     * Calculate the CC of the methods of the source class after the refactoring
      */
-    private void insertExtractedMethodToTarget() {
-        TypeDeclaration td = extractedMethod.getRefactoredTypeDeclaration();
-        // get AST of the target class
-        AST ast = td.getAST();
-        MethodDeclaration md = extractedMethod.getExtractedMethodDeclaration();
-        // copy the extracted method onto the target class
-        MethodDeclaration newExtractedMethod = ast.newMethodDeclaration();
-        newExtractedMethod.setName(ast.newSimpleName(md.getName().getIdentifier()));
-        newExtractedMethod.setReturnType2((org.eclipse.jdt.core.dom.Type) ASTNode.copySubtree(ast, md.getReturnType2()));
-        newExtractedMethod.setBody((Block) ASTNode.copySubtree(ast, md.getBody()));
-        newExtractedMethod.modifiers().addAll(ASTNode.copySubtrees(ast, md.modifiers()));
-        newExtractedMethod.parameters().addAll(ASTNode.copySubtrees(ast, md.parameters()));
-        // insert the copied extracted method to the target class
-        td.bodyDeclarations().add(newExtractedMethod);
+    private void calculateCCAfterRefactoring() {
+        this.afterRefactorMetrics = new HashMap<>(this.beforeRefactorMetrics);
+        ITypeBinding binding;
+        synchronized (ASTBuilder.BINDING_LOCK) {
+            binding = sourceClass.resolveBinding();
+        }
+        if (hostProfile == null || binding == null) {
+            return;
+        }
+        Integer[] range = extractedMethod.getLineRange();
+        int extractedDecisions = hostProfile.getDecisionPoints(range[0], range[1]);
 
-    }
+        double hostCC = hostProfile.getCyclomaticComplexity() - extractedDecisions;
+        this.afterRefactorMetrics.put(getFullyQualifiedName(hostProfile.getMethod()), hostCC);
 
-    /**
-     * Calculate the LCOM of the source & target classes after the refactoring
-     */
-    private void calculateCCAfterRefactoring() throws IOException {
-        JavaFilesFinder finder = new JavaFilesFinder(this.targetProject.toString());
-        SourceFilesLoader loader = new SourceFilesLoader(finder);
-        for (SourceFile sourceFile : loader.getLoadedSourceFiles()) {
-            for (cmu.csdetector.resources.Type sourceType : sourceFile.getTypes()) {
-                String sourceIdentifier = sourceType.getNodeAsTypeDeclaration().getName().getIdentifier();
-                if (sourceIdentifier.startsWith(sourceClass.getName().getIdentifier())) { // refactored class was renamed as <original class name>Refactored
-                    this.afterRefactorMetrics = this.calcCC(sourceType);
-                }
-            }
-        }
+        String extractedName = binding.getQualifiedName() + "." + extractedMethod.getExtractedMethodDeclaration().getName();
+        this.afterRefactorMetrics.put(extractedName, (double) (1 + extractedDecisions));
     }
 
     /**
-     * Calculate the LCOM of the source & target classes before the refactoring
+     * Calculate the CC of the methods of the source class before the refactoring
      */
-    private void calculateCCBeforeRefactoring() throws IOException {
-        JavaFilesFinder finder = new JavaFilesFinder(this.sourceProject.toString());
-        SourceFilesLoader loader = new SourceFilesLoader(finder);
-        for (SourceFile sourceFile : loader.getLoadedSourceFiles()) {
-            for (cmu.csdetector.resources.Type sourceType : sourceFile.getTypes()) {
-                String sourceIdentifier = sourceType.getNodeAsTypeDeclaration().getName().getIdentifier();
-                if (sourceIdentifier.equals(sourceClass.getName().getIdentifier())) {
-                    this.beforeRefactorMetrics = this.calcCC(sourceType);
-                }
-            }
-        }
+    private void calculateCCBeforeRefactoring() {
+        this.beforeRefactorMetrics = new HashMap<>(BeforeRefactoringMetrics.getInstance().getMethodComplexities(sourceType));
     }
 
     public void evaluate() throws IOException {
         try {
             calculateCCBeforeRefactoring();
-            applyRefactoring();
             calculateCCAfterRefactoring();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            cleanUp();
         }
     }
 
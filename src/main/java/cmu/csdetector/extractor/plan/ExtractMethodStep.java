@@ -0,0 +1,44 @@
+package cmu.csdetector.extractor.plan;
+
+import cmu.csdetector.resources.Type;
+
+/**
+ * Extracts the lines [startLine, endLine] of a method to a new method of the same class
+ */
+public class ExtractMethodStep implements RefactoringStep {
+
+    private final Type type;
+
+    private final String methodName;
+
+    private final int startLine;
+
+    private final int endLine;
+
+    private final String extractedName;
+
+    /**
+     * @param type the class of the method
+     * @param methodName the method holding the lines, as it is in the plan (it may be an extracted method)
+     * @param startLine first extracted line, in the source file of the class
+     * @param endLine last extracted line
+     * @param extractedName the name of the new method
+     */
+    public ExtractMethodStep(Type type, String methodName, int startLine, int endLine, String extractedName) {
+        this.type = type;
+        this.methodName = methodName;
+        this.startLine = startLine;
+        this.endLine = endLine;
+        this.extractedName = extractedName;
+    }
+
+    @Override
+    public void applyTo(RefactoringPlanSimulator simulator) {
+        simulator.extract(type, methodName, startLine, endLine, extractedName);
+    }
+
+    @Override
+    public String toString() {
+        return "Extract " + type.getFullyQualifiedName() + "." + methodName + "[" + startLine + "-" + endLine + "] to " + extractedName;
+    }
+}
@@ -0,0 +1,36 @@
+package cmu.csdetector.extractor.plan;
+
+import cmu.csdetector.resources.Type;
+
+/**
+ * Moves a method of a class to another class
+ */
+public class MoveMethodStep implements RefactoringStep {
+
+    private final Type source;
+
+    private final String methodName;
+
+    private final Type target;
+
+    /**
+     * @param source the class of the method
+     * @param methodName the method to move, as it is in the plan (it may be an extracted method)
+     * @param target the class the method is moved to
+     */
+    public MoveMethodStep(Type source, String methodName, Type target) {
+        this.source = source;
+        this.methodName = methodName;
+        this.target = target;
+    }
+
+    @Override
+    public void applyTo(RefactoringPlanSimulator simulator) {
+        simulator.move(source, methodName, target);
+    }
+
+    @Override
+    public String toString() {
+        return "Move " + source.getFullyQualifiedName() + "." + methodName + " to " + target.getFullyQualifiedName();
+    }
+}
@@ -0,0 +1,286 @@
+package cmu.csdetector.extractor.plan;
+
+import cmu.csdetector.ast.ASTBuilder;
+import cmu.csdetector.extractor.MethodLineProfile;
+import cmu.csdetector.extractor.evaluator.BeforeRefactoringMetrics;
+import cmu.csdetector.extractor.evaluator.ClassCohesionProfile;
+import cmu.csdetector.metrics.MetricName;
+import cmu.csdetector.resources.Type;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+
+import java.util.*;
+
+/**
+ * Applies a plan, a sequence of extract and move method steps, virtually on the loaded project. Every step only
+ * adds and removes methods of the simulated classes, whose metrics are updated on the way (see {@link SimulatedClass}),
+ * so a step costs about the size of the methods it changes, nothing being parsed again. Each step reports the
+ * metrics of the classes it changed before and after it, and can be undone, so plans can be built greedily by
+ * previewing the candidate steps.
+ *
+ * Classes are simulated from their cohesion profile the first time a step refers to them. A simulator is meant to be
+ * used by a single thread.
+ */
+public class RefactoringPlanSimulator {
+
+    private final Map<Type, SimulatedClass> classes;
+
+    /**
+     * Class currently declaring each method of the simulated classes, by method key
+     */
+    private final Map<String, String> declaringClasses;
+
+    /**
+     * The simulated classes calling each method, by method key
+     */
+    private final Map<String, Set<SimulatedClass>> callers;
+
+    private final Deque<Step> appliedSteps;
+
+    /**
+     * The step being applied, null when undoing
+     */
+    private Step currentStep;
+
+    private int extractedCount;
+
+    public RefactoringPlanSimulator() {
+        this.classes = new LinkedHashMap<>();
+        this.declaringClasses = new HashMap<>();
+        this.callers = new HashMap<>();
+        this.appliedSteps = new ArrayDeque<>();
+    }
+
+    /**
+     * The class as it is after the steps applied so far
+     */
+    public SimulatedClass getSimulatedClass(Type type) {
+        SimulatedClass simulated = classes.get(type);
+        if (simulated != null) {
+            return simulated;
+        }
+        ClassCohesionProfile profile = BeforeRefactoringMetrics.getInstance().getCohesionProfile(type);
+        List<SimulatedMethod> methods = new ArrayList<>();
+        synchronized (ASTBuilder.BINDING_LOCK) {
+            ITypeBinding binding = type.getBinding();
+            String name = binding != null ? binding.getErasure().getQualifiedName() : type.getFullyQualifiedName();
+            Set<String> declaredFields = new HashSet<>();
+            if (binding != null) {
+                for (IVariableBinding field : binding.getDeclaredFields()) {
+                    declaredFields.add(field.getKey());
+                }
+            }
+            simulated = new SimulatedClass(name, profile, declaredFields);
+            for (MethodLineProfile method : profile.getMethodProfiles()) {
+                methods.add(SimulatedMethod.of(method));
+            }
+        }
+        classes.put(type, simulated);
+        for (SimulatedMethod method : methods) {
+            declaringClasses.putIfAbsent(method.getKey(), simulated.getName());
+        }
+        Step step = this.currentStep;
+        this.currentStep = null;
+        for (SimulatedMethod method : methods) {
+            this.addMethod(simulated, method);
+        }
+        this.currentStep = step;
+        return simulated;
+    }
+
+    public Map<MetricName, Double> getMetrics(Type type) {
+        return this.getSimulatedClass(type).getMetrics();
+    }
+
+    /**
+     * Applies the step after the ones applied so far
+     *
+     * @throws IllegalArgumentException if the step does not apply, in which case nothing is changed
+     */
+    public StepResult apply(RefactoringStep refactoringStep) {
+        this.currentStep = new Step();
+        try {
+            refactoringStep.applyTo(this);
+        } catch (RuntimeException e) {
+            this.revert(this.currentStep);
+            this.currentStep = null;
+            throw e;
+        }
+        Step step = this.currentStep;
+        this.currentStep = null;
+        this.appliedSteps.push(step);
+
+        Map<String, Map<MetricName, Double>> after = new LinkedHashMap<>();
+        for (SimulatedClass simulated : step.before.keySet()) {
+            after.put(simulated.getName(), simulated.getMetrics());
+        }
+        Map<String, Map<MetricName, Double>> before = new LinkedHashMap<>();
+        step.before.forEach((simulated, metrics) -> before.put(simulated.getName(), metrics));
+        return new StepResult(refactoringStep, before, after);
+    }
+
+    /**
+     * Applies the steps of the plan in order
+     *
+     * @return the result of each step
+     */
+    public List<StepResult> apply(List<RefactoringStep> plan) {
+        List<StepResult> results = new ArrayList<>();
+        for (RefactoringStep step : plan) {
+            results.add(this.apply(step));
+        }
+        return results;
+    }
+
+    /**
+     * The result the step would have after the ones applied so far, which are left as they are
+     */
+    public StepResult preview(RefactoringStep step) {
+        StepResult result = this.apply(step);
+        this.undo();
+        return result;
+    }
+
+    /**
+     * Undoes the last applied step
+     */
+    public void undo() {
+        if (appliedSteps.isEmpty()) {
+            throw new IllegalStateException("No step to undo");
+        }
+        this.revert(appliedSteps.pop());
+    }
+
+    public int getStepCount() {
+        return appliedSteps.size();
+    }
+
+    void extract(Type type, String methodName, int startLine, int endLine, String extractedName) {
+        SimulatedClass simulated = this.getSimulatedClass(type);
+        SimulatedMethod host = simulated.findMethod(methodName);
+        if (host == null || !host.owns(startLine, endLine)) {
+            throw new IllegalArgumentException("No method " + methodName + " holding the lines " + startLine + "-" + endLine + " in " + simulated.getName());
+        }
+        String extractedKey = simulated.getName() + "#" + extractedName + "#" + (++extractedCount);
+        this.setDeclaringClass(extractedKey, simulated.getName());
+        this.removeMethod(simulated, host);
+        this.addMethod(simulated, host.withoutLines(startLine, endLine, extractedKey, simulated.getName()));
+        this.addMethod(simulated, host.extractLines(startLine, endLine, extractedKey, extractedName));
+    }
+
+    void move(Type source, String methodName, Type target) {
+        SimulatedClass from = this.getSimulatedClass(source);
+        SimulatedClass to = this.getSimulatedClass(target);
+        SimulatedMethod method = from.findMethod(methodName);
+        if (method == null || from == to) {
+            throw new IllegalArgumentException("Cannot move " + methodName + " from " + from.getName() + " to " + to.getName());
+        }
+        this.removeMethod(from, method);
+        this.setDeclaringClass(method.getKey(), to.getName());
+        this.addMethod(to, method);
+    }
+
+    /**
+     * Keeps the metrics of the class before the current step changes it
+     */
+    private void touch(SimulatedClass simulated) {
+        if (currentStep != null && !currentStep.before.containsKey(simulated)) {
+            currentStep.before.put(simulated, simulated.getMetrics());
+        }
+    }
+
+    private void addMethod(SimulatedClass simulated, SimulatedMethod method) {
+        this.touch(simulated);
+        simulated.add(method);
+        for (Map.Entry<String, String> call : method.getCalledMethods().entrySet()) {
+            String declaringClass = declaringClasses.getOrDefault(call.getKey(), call.getValue());
+            if (simulated.addCallee(call.getKey(), declaringClass)) {
+                callers.computeIfAbsent(call.getKey(), k -> new HashSet<>()).add(simulated);
+            }
+        }
+        this.record(new Change(Change.ADD, simulated, method, null, null));
+    }
+
+    private void removeMethod(SimulatedClass simulated, SimulatedMethod method) {
+        this.touch(simulated);
+        simulated.remove(method);
+        for (Map.Entry<String, String> call : method.getCalledMethods().entrySet()) {
+            String declaringClass = declaringClasses.getOrDefault(call.getKey(), call.getValue());
+            if (simulated.removeCallee(call.getKey(), declaringClass)) {
+                callers.get(call.getKey()).remove(simulated);
+            }
+        }
+        this.record(new Change(Change.REMOVE, simulated, method, null, null));
+    }
+
+    private void setDeclaringClass(String methodKey, String className) {
+        String previous = declaringClasses.put(methodKey, className);
+        if (previous != null) {
+            for (SimulatedClass caller : callers.getOrDefault(methodKey, Collections.emptySet())) {
+                this.touch(caller);
+                caller.changeDeclaringClass(methodKey, previous, className);
+            }
+        }
+        this.record(new Change(Change.DECLARE, null, null, methodKey, previous));
+    }
+
+    private void record(Change change) {
+        if (currentStep != null) {
+            currentStep.changes.add(change);
+        }
+    }
+
+    /**
+     * Applies the inverse of the changes of the step, last first
+     */
+    private void revert(Step step) {
+        Step current = this.currentStep;
+        this.currentStep = null;
+        for (int i = step.changes.size() - 1; i >= 0; i--) {
+            Change change = step.changes.get(i);
+            switch (change.kind) {
+                case Change.ADD:
+                    this.removeMethod(change.simulated, change.method);
+                    break;
+                case Change.REMOVE:
+                    this.addMethod(change.simulated, change.method);
+                    break;
+                default:
+                    if (change.previousClass == null) {
+                        declaringClasses.remove(change.methodKey);
+                    } else {
+                        this.setDeclaringClass(change.methodKey, change.previousClass);
+                    }
+            }
+        }
+        this.currentStep = current;
+    }
+
+    private static class Step {
+        /**
+         * Metrics of the classes changed by the step, before it
+         */
+        private final Map<SimulatedClass, Map<MetricName, Double>> before = new LinkedHashMap<>();
+        private final List<Change> changes = new ArrayList<>();
+    }
+
+    private static class Change {
+        private static final int ADD = 0;
+        private static final int REMOVE = 1;
+        private static final int DECLARE = 2;
+
+        private final int kind;
+        private final SimulatedClass simulated;
+        private final SimulatedMethod method;
+        private final String methodKey;
+        private final String previousClass;
+
+        Change(int kind, SimulatedClass simulated, SimulatedMethod method, String methodKey, String previousClass) {
+            this.kind = kind;
+            this.simulated = simulated;
+            this.method = method;
+            this.methodKey = methodKey;
+            this.previousClass = previousClass;
+        }
+    }
+}
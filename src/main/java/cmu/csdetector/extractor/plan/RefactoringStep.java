@@ -0,0 +1,14 @@
+package cmu.csdetector.extractor.plan;
+
+/**
+ * A refactoring operation of a plan, applied virtually by a {@link RefactoringPlanSimulator}
+ */
+public interface RefactoringStep {
+
+    /**
+     * Applies the step on the classes of the simulator
+     *
+     * @throws IllegalArgumentException if the step does not apply to the classes as they are
+     */
+    void applyTo(RefactoringPlanSimulator simulator);
+}
@@ -0,0 +1,227 @@
+package cmu.csdetector.extractor.plan;
+
+import cmu.csdetector.extractor.evaluator.ClassCohesionProfile;
+import cmu.csdetector.extractor.evaluator.ClassCohesionProfile.CohesionCounts;
+import cmu.csdetector.metrics.MetricName;
+
+import java.util.*;
+
+/**
+ * A class as seen during a simulation, holding the inputs of its metrics, which are updated as methods are
+ * added and removed rather than recomputed:
+ * 		CC: the CC of each method (their sum, and their counts for the maximum)
+ * 		LCOM2/LCOM3: the counts of {@link CohesionCounts}, the fields accessed by a method counting when they belong
+ * 		to the class hierarchy
+ * 		TCC: the number of pairs of public methods accessing a common field declared by the class
+ * 		coupling: how many methods of the class call each method, the called methods declared by another class
+ * 		being the coupling intensity, and their distinct classes its dispersion
+ */
+public class SimulatedClass {
+
+    private final String name;
+
+    private final boolean resolved;
+
+    private final int attributeCount;
+
+    private final Set<String> fieldsInHierarchy;
+
+    private final Set<String> declaredFields;
+
+    private final List<SimulatedMethod> methods;
+
+    private int accessSum;
+
+    private int totalComplexity;
+
+    /**
+     * Number of methods of each CC
+     */
+    private final TreeMap<Integer, Integer> complexityCounts;
+
+    private final List<SimulatedMethod> visibleMethods;
+
+    private long connectedPairs;
+
+    /**
+     * Number of methods of the class calling each method, by key
+     */
+    private final Map<String, Integer> calleeCounts;
+
+    private int externalCallees;
+
+    /**
+     * Number of distinct called methods each other class declares
+     */
+    private final Map<String, Integer> externalClasses;
+
+    SimulatedClass(String name, ClassCohesionProfile profile, Set<String> declaredFields) {
+        this.name = name;
+        this.resolved = profile.isResolved();
+        this.attributeCount = profile.getAttributeCount();
+        this.fieldsInHierarchy = profile.getFieldsInHierarchy();
+        this.declaredFields = declaredFields;
+        this.methods = new ArrayList<>();
+        this.complexityCounts = new TreeMap<>();
+        this.visibleMethods = new ArrayList<>();
+        this.calleeCounts = new HashMap<>();
+        this.externalClasses = new HashMap<>();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<SimulatedMethod> getMethods() {
+        return Collections.unmodifiableList(methods);
+    }
+
+    /**
+     * The method of the given name, the first one if it is overloaded
+     */
+    public SimulatedMethod findMethod(String methodName) {
+        for (SimulatedMethod method : methods) {
+            if (method.getName().equals(methodName)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the method, but not its calls, see {@link #addCallee(String, String)}
+     */
+    void add(SimulatedMethod method) {
+        methods.add(method);
+        accessSum += countIn(method.getAccessedFields(), fieldsInHierarchy);
+        totalComplexity += method.getCyclomaticComplexity();
+        complexityCounts.merge(method.getCyclomaticComplexity(), 1, Integer::sum);
+        if (method.isVisible()) {
+            for (SimulatedMethod other : visibleMethods) {
+                if (areConnected(method, other)) {
+                    connectedPairs++;
+                }
+            }
+            visibleMethods.add(method);
+        }
+    }
+
+    /**
+     * Removes the method, but not its calls, see {@link #removeCallee(String, String)}
+     */
+    void remove(SimulatedMethod method) {
+        methods.remove(method);
+        accessSum -= countIn(method.getAccessedFields(), fieldsInHierarchy);
+        totalComplexity -= method.getCyclomaticComplexity();
+        complexityCounts.computeIfPresent(method.getCyclomaticComplexity(), (cc, count) -> count == 1 ? null : count - 1);
+        if (method.isVisible()) {
+            visibleMethods.remove(method);
+            for (SimulatedMethod other : visibleMethods) {
+                if (areConnected(method, other)) {
+                    connectedPairs--;
+                }
+            }
+        }
+    }
+
+    private boolean areConnected(SimulatedMethod first, SimulatedMethod second) {
+        for (String field : first.getAccessedFields()) {
+            if (declaredFields.contains(field) && second.getAccessedFields().contains(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countIn(Set<String> fields, Set<String> classFields) {
+        int count = 0;
+        for (String field : fields) {
+            if (classFields.contains(field)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * One more method of the class calls the given one, declared by the given class
+     *
+     * @return true if no other method of the class called it
+     */
+    boolean addCallee(String callee, String declaringClass) {
+        int count = calleeCounts.merge(callee, 1, Integer::sum);
+        if (count == 1) {
+            this.addContribution(declaringClass);
+        }
+        return count == 1;
+    }
+
+    /**
+     * One less method of the class calls the given one, declared by the given class
+     *
+     * @return true if no method of the class calls it anymore
+     */
+    boolean removeCallee(String callee, String declaringClass) {
+        Integer count = calleeCounts.computeIfPresent(callee, (key, value) -> value == 1 ? null : value - 1);
+        if (count == null) {
+            this.removeContribution(declaringClass);
+        }
+        return count == null;
+    }
+
+    /**
+     * A method called by the class is now declared by another class
+     */
+    void changeDeclaringClass(String callee, String oldClass, String newClass) {
+        if (calleeCounts.containsKey(callee)) {
+            this.removeContribution(oldClass);
+            this.addContribution(newClass);
+        }
+    }
+
+    private void addContribution(String declaringClass) {
+        if (!name.equals(declaringClass)) {
+            externalCallees++;
+            externalClasses.merge(declaringClass, 1, Integer::sum);
+        }
+    }
+
+    private void removeContribution(String declaringClass) {
+        if (!name.equals(declaringClass)) {
+            externalCallees--;
+            externalClasses.computeIfPresent(declaringClass, (key, value) -> value == 1 ? null : value - 1);
+        }
+    }
+
+    public CohesionCounts getCohesionCounts() {
+        return new CohesionCounts(resolved, methods.size(), attributeCount, accessSum);
+    }
+
+    /**
+     * Same as TCCMetricValueCalculator: 1 for less than two public methods
+     */
+    public double getTCC() {
+        int n = visibleMethods.size();
+        if (n <= 1) {
+            return 1.0;
+        }
+        return connectedPairs / (n * (n - 1) / 2.0);
+    }
+
+    /**
+     * The current metrics of the class: CC (the maximum of its methods), WMC (their sum), LCOM2, LCOM3, TCC,
+     * CINT (distinct methods of other classes called) and CDISP (distinct classes of these methods, by CINT)
+     */
+    public Map<MetricName, Double> getMetrics() {
+        Map<MetricName, Double> metrics = new EnumMap<>(MetricName.class);
+        metrics.put(MetricName.CC, complexityCounts.isEmpty() ? 0.0 : complexityCounts.lastKey());
+        metrics.put(MetricName.WMC, (double) totalComplexity);
+        CohesionCounts counts = this.getCohesionCounts();
+        metrics.put(MetricName.LCOM2, counts.getLCOM2());
+        metrics.put(MetricName.LCOM3, counts.getLCOM3());
+        metrics.put(MetricName.TCC, this.getTCC());
+        metrics.put(MetricName.CINT, (double) externalCallees);
+        metrics.put(MetricName.CDISP, externalCallees == 0 ? 0.0 : externalClasses.size() / (double) externalCallees);
+        return metrics;
+    }
+}
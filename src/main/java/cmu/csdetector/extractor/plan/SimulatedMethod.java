@@ -0,0 +1,194 @@
+package cmu.csdetector.extractor.plan;
+
+import cmu.csdetector.extractor.MethodLineProfile;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Modifier;
+
+import java.util.*;
+
+/**
+ * A method as seen during a simulation: the lines of an original method it is made of, taken from the
+ * {@link MethodLineProfile} of that method, so its metrics are derived without changing or parsing anything.
+ * An original method owns all its lines; extracting lines from a method gives a new method owning them, the
+ * method they come from losing them but calling the new one instead, on the first extracted line.
+ *
+ * Instances are immutable, a simulation step replaces a method by a new instance.
+ */
+public class SimulatedMethod {
+
+    /**
+     * Identifies the method across the steps: the binding key of an original method, a generated key for an
+     * extracted one
+     */
+    private final String key;
+
+    private final String name;
+
+    private final boolean visible;
+
+    private final MethodLineProfile profile;
+
+    /**
+     * The line ranges [from, to] of the original method owned by this method
+     */
+    private final List<int[]> ranges;
+
+    /**
+     * Calls to extracted methods replacing lines of the original method, by key of the extracted method:
+     * the line the call is on and the class declaring the extracted method
+     */
+    private final Map<String, Integer> extractedCallLines;
+
+    private final Map<String, String> extractedCallClasses;
+
+    /**
+     * Called methods, with the class declaring them when the call was made
+     */
+    private final Map<String, String> calledMethods;
+
+    private final int cyclomaticComplexity;
+
+    private final Set<String> accessedFields;
+
+    private SimulatedMethod(String key, String name, boolean visible, MethodLineProfile profile, List<int[]> ranges,
+                            Map<String, Integer> extractedCallLines, Map<String, String> extractedCallClasses) {
+        this.key = key;
+        this.name = name;
+        this.visible = visible;
+        this.profile = profile;
+        this.ranges = Collections.unmodifiableList(ranges);
+        this.extractedCallLines = extractedCallLines;
+        this.extractedCallClasses = extractedCallClasses;
+
+        int decisions = 0;
+        Set<String> fields = new HashSet<>();
+        Map<String, String> calls = new HashMap<>();
+        for (int[] range : ranges) {
+            decisions += profile.getDecisionPoints(range[0], range[1]);
+            fields.addAll(profile.getFieldsAccessed(range[0], range[1]));
+            for (String called : profile.getMethodsCalled(range[0], range[1])) {
+                calls.put(called, profile.getDeclaringClass(called));
+            }
+        }
+        calls.putAll(extractedCallClasses);
+        this.cyclomaticComplexity = 1 + decisions;
+        this.accessedFields = Collections.unmodifiableSet(fields);
+        this.calledMethods = Collections.unmodifiableMap(calls);
+    }
+
+    /**
+     * The original method of the given profile, owning all its lines
+     */
+    public static SimulatedMethod of(MethodLineProfile profile) {
+        MethodDeclaration declaration = profile.getMethod();
+        IMethodBinding binding = declaration.resolveBinding();
+        String name = declaration.getName().getIdentifier();
+        String key = binding != null ? binding.getKey() : name + "@" + profile.getFirstLine();
+        List<int[]> ranges = new ArrayList<>();
+        ranges.add(new int[]{profile.getFirstLine(), profile.getLastLine()});
+        return new SimulatedMethod(key, name, Modifier.isPublic(declaration.getModifiers()), profile, ranges, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Whether the lines [from, to] all belong to this method
+     */
+    public boolean owns(int from, int to) {
+        return this.findRange(from, to) != null;
+    }
+
+    private int[] findRange(int from, int to) {
+        for (int[] range : ranges) {
+            if (range[0] <= from && to <= range[1]) {
+                return range;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The method once the lines [from, to] are extracted to the method of the given key, declared by the given class
+     */
+    SimulatedMethod withoutLines(int from, int to, String extractedKey, String extractedClass) {
+        int[] owner = this.findRange(from, to);
+        List<int[]> remaining = new ArrayList<>();
+        for (int[] range : ranges) {
+            if (range != owner) {
+                remaining.add(range);
+                continue;
+            }
+            if (range[0] < from) {
+                remaining.add(new int[]{range[0], from - 1});
+            }
+            if (to < range[1]) {
+                remaining.add(new int[]{to + 1, range[1]});
+            }
+        }
+        // the calls made on the extracted lines go with them
+        Map<String, Integer> callLines = new HashMap<>();
+        Map<String, String> callClasses = new HashMap<>();
+        for (Map.Entry<String, Integer> call : extractedCallLines.entrySet()) {
+            if (call.getValue() < from || to < call.getValue()) {
+                callLines.put(call.getKey(), call.getValue());
+                callClasses.put(call.getKey(), extractedCallClasses.get(call.getKey()));
+            }
+        }
+        callLines.put(extractedKey, from);
+        callClasses.put(extractedKey, extractedClass);
+        return new SimulatedMethod(key, name, visible, profile, remaining, callLines, callClasses);
+    }
+
+    /**
+     * A new public method made of the lines [from, to] of this method
+     */
+    SimulatedMethod extractLines(int from, int to, String extractedKey, String extractedName) {
+        List<int[]> extracted = new ArrayList<>();
+        extracted.add(new int[]{from, to});
+        Map<String, Integer> callLines = new HashMap<>();
+        Map<String, String> callClasses = new HashMap<>();
+        for (Map.Entry<String, Integer> call : extractedCallLines.entrySet()) {
+            if (from <= call.getValue() && call.getValue() <= to) {
+                callLines.put(call.getKey(), call.getValue());
+                callClasses.put(call.getKey(), extractedCallClasses.get(call.getKey()));
+            }
+        }
+        return new SimulatedMethod(extractedKey, extractedName, true, profile, extracted, callLines, callClasses);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the method is public, the ones TCC relates
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public List<int[]> getRanges() {
+        return ranges;
+    }
+
+    public int getCyclomaticComplexity() {
+        return cyclomaticComplexity;
+    }
+
+    /**
+     * Binding keys of the distinct fields, of any class, the method accesses
+     */
+    public Set<String> getAccessedFields() {
+        return accessedFields;
+    }
+
+    /**
+     * Keys of the distinct methods called, out of the Java library, with the class declaring them at the time of the call
+     */
+    public Map<String, String> getCalledMethods() {
+        return calledMethods;
+    }
+}
@@ -0,0 +1,68 @@
+package cmu.csdetector.extractor.plan;
+
+import cmu.csdetector.metrics.MetricName;
+
+import java.util.*;
+
+/**
+ * The metrics of the classes changed by a step, before and after it, by class qualified name
+ */
+public class StepResult {
+
+    private final RefactoringStep step;
+
+    private final Map<String, Map<MetricName, Double>> before;
+
+    private final Map<String, Map<MetricName, Double>> after;
+
+    StepResult(RefactoringStep step, Map<String, Map<MetricName, Double>> before, Map<String, Map<MetricName, Double>> after) {
+        this.step = step;
+        this.before = before;
+        this.after = after;
+    }
+
+    public RefactoringStep getStep() {
+        return step;
+    }
+
+    /**
+     * The classes changed by the step, in the order the step changed them
+     */
+    public Set<String> getAffectedClasses() {
+        return Collections.unmodifiableSet(before.keySet());
+    }
+
+    public Map<MetricName, Double> getBefore(String className) {
+        return before.get(className);
+    }
+
+    public Map<MetricName, Double> getAfter(String className) {
+        return after.get(className);
+    }
+
+    /**
+     * The change of the metric of the class, 0 if the step did not change the class
+     */
+    public double getDelta(String className, MetricName metric) {
+        if (!before.containsKey(className)) {
+            return 0.0;
+        }
+        return after.get(className).get(metric) - before.get(className).get(metric);
+    }
+
+    /**
+     * The change of the metric summed over the classes changed by the step
+     */
+    public double getDelta(MetricName metric) {
+        double delta = 0.0;
+        for (String className : before.keySet()) {
+            delta += this.getDelta(className, metric);
+        }
+        return delta;
+    }
+
+    @Override
+    public String toString() {
+        return step + " " + after;
+    }
+}
@@ -21,6 +21,12 @@ public class CallGraph {
      */
     private Map<IMethodBinding, Set<IMethodBinding>> calledBy;
 
+    /**
+     * The same edges as in calling, but keyed by binding keys so they
+     * survive in a project snapshot
+     */
+    private Map<String, Set<String>> callingByKey;
+
     private static CallGraph singleton;
 
     static {
@@ -30,6 +36,7 @@ public class CallGraph {
     private CallGraph() {
         this.calling = new HashMap<>();
         this.calledBy = new HashMap<>();
+        this.callingByKey = new HashMap<>();
     }
 
     public static CallGraph getInstance() {
@@ -61,6 +68,21 @@ public class CallGraph {
     public void addMethodCall(IMethodBinding caller, IMethodBinding callee) {
         this.addCaller(caller, callee);
         this.addCalee(caller, callee);
+        this.addMethodCall(caller.getKey(), callee.getKey());
+    }
+
+    /**
+     * Registers an edge by binding keys only, as done when a project snapshot is restored
+     */
+    public void addMethodCall(String callerKey, String calleeKey) {
+        this.callingByKey.computeIfAbsent(callerKey, k -> new HashSet<>()).add(calleeKey);
+    }
+
+    /**
+     * All the edges of the graph, keyed by the binding key of the caller
+     */
+    public Map<String, Set<String>> getCallsByKey() {
+        return callingByKey;
     }
 
     /**
@@ -97,5 +119,6 @@ public class CallGraph {
     public void reset() {
         this.calledBy.clear();
         this.calling.clear();
+        this.callingByKey.clear();
     }
 }
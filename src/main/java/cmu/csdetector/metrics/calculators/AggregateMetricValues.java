@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Set;
 
 public class AggregateMetricValues implements Observer {
 
@@ -50,6 +51,28 @@ public class AggregateMetricValues implements Observer {
         stats.addValue(value);
     }
 
+    /**
+     * Replaces the values registered for a metric, as done when a project snapshot is restored
+     */
+    public void restore(MetricName metricName, double[] values) {
+        this.aggregateValues.put(metricName, new DescriptiveStatistics(values));
+        this.avgCache.remove(metricName);
+        this.firstQuartileCache.remove(metricName);
+        this.stdDevCache.remove(metricName);
+    }
+
+    public Set<MetricName> getRegisteredMetrics() {
+        return this.aggregateValues.keySet();
+    }
+
+    public double[] getRegisteredValues(MetricName name) {
+        DescriptiveStatistics stats = this.aggregateValues.get(name);
+        if (stats == null) {
+            return new double[0];
+        }
+        return stats.getValues();
+    }
+
     public Double getAverageValue(MetricName name) {
         //check if the value is in the cache
         if (avgCache.containsKey(name)) {
@@ -109,7 +132,7 @@ public class AggregateMetricValues implements Observer {
     }
 
     @Override
-    public void update(Observable observable, Object value) {
+    public synchronized void update(Observable observable, Object value) {
         MetricValueCalculator calculator = (MetricValueCalculator)observable;
         if (calculator.shouldComputeAggregate()) {
             this.register(calculator.getMetricName(), (Double)value);
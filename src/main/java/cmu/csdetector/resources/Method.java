@@ -1,18 +1,34 @@
 package cmu.csdetector.resources;
 
+import cmu.csdetector.ast.visitors.ClassMethodInvocationVisitor;
 import cmu.csdetector.ast.visitors.MethodInvocationVisitor;
 import cmu.csdetector.graph.CallGraph;
 import cmu.csdetector.resources.loader.SourceFile;
 import org.eclipse.jdt.core.dom.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Method extends Resource {
 
     private List<String> parametersTypes;
 
+    /**
+     * Qualified name of the declaring class, kept for methods restored from a snapshot
+     */
+    private transient String declaringTypeName;
+
+    /**
+     * Number of calls made to methods of each system class, keyed by the class qualified name
+     */
+    private transient Map<String, Integer> typeCallCounts;
+
     public IMethodBinding getBinding() {
+        if (this.getNode() == null) {
+            return null;
+        }
         MethodDeclaration declaration = (MethodDeclaration)this.getNode();
         IMethodBinding binding = declaration.resolveBinding();
         return binding;
@@ -97,10 +113,56 @@ public class Method extends Resource {
         }
     }
 
+    /**
+     * Restores a method from a project snapshot. There is no AST node behind it,
+     * so everything the detectors need is given explicitly.
+     */
+    public Method(SourceFile sourceFile, String fullyQualifiedName, String kind, int startLineNumber, int endLineNumber,
+                  List<String> parametersTypes, String declaringTypeName, Map<String, Integer> typeCallCounts) {
+        super(sourceFile, fullyQualifiedName, kind, startLineNumber, endLineNumber);
+        this.parametersTypes = parametersTypes;
+        this.declaringTypeName = declaringTypeName;
+        this.typeCallCounts = typeCallCounts;
+    }
+
     public List<String> getParametersTypes() {
         return parametersTypes;
     }
 
+    /**
+     * @return the qualified name of the declaring class, or null if the method could not be bound
+     */
+    public String getDeclaringTypeName() {
+        if (this.getNode() == null) {
+            return declaringTypeName;
+        }
+        IMethodBinding binding = this.getBinding();
+        if (binding == null) {
+            return null;
+        }
+        return binding.getDeclaringClass().getQualifiedName();
+    }
+
+    /**
+     * Counts the calls this method makes to each class of the system (including the declaring one)
+     *
+     * @return number of calls keyed by the qualified name of the called class
+     */
+    public Map<String, Integer> getTypeCallCounts() {
+        if (this.typeCallCounts != null) {
+            return typeCallCounts;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        IMethodBinding binding = this.getBinding();
+        if (binding != null) {
+            ClassMethodInvocationVisitor visitor = new ClassMethodInvocationVisitor(binding.getDeclaringClass());
+            this.getNode().accept(visitor);
+            visitor.getMethodsCalls().forEach((typeBinding, calls) -> counts.merge(typeBinding.getQualifiedName(), calls, Integer::sum));
+        }
+        this.typeCallCounts = counts;
+        return counts;
+    }
+
     @Override
     public String toString() {
         return "Method [fqn=" + getFullyQualifiedName() + "]";
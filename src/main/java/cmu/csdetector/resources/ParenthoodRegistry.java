@@ -90,7 +90,8 @@ public class ParenthoodRegistry {
     public Set<String> getAncestors(Type type) {
         ITypeBinding typeBinding = type.getBinding();
         if (typeBinding == null) {
-            return new HashSet<>();
+            // types restored from a snapshot have no binding, but their ancestors were registered
+            return this.ancestorsMap.getOrDefault(type.getFullyQualifiedName(), new HashSet<>());
         }
 
         String typeFqn = getQualifiedName(typeBinding);
@@ -116,6 +117,27 @@ public class ParenthoodRegistry {
         children.add(childFqn);
     }
 
+    /**
+     * Register a parenthood relation by qualified names, as stored in a project snapshot
+     */
+    public void addChild(String parentFqn, String childFqn) {
+        this.parenthoodMap.computeIfAbsent(parentFqn, k -> new HashSet<>()).add(childFqn);
+    }
+
+    /**
+     * Register the ancestors of a type by qualified names, as stored in a project snapshot
+     */
+    public void addAncestors(String typeFqn, Set<String> ancestors) {
+        this.ancestorsMap.put(typeFqn, ancestors);
+    }
+
+    /**
+     * A set of children for each type (identified by its FQN)
+     */
+    public Map<String, Set<String>> getParenthoodMap() {
+        return parenthoodMap;
+    }
+
     /**
      * Get the type parent and register its new child
      * @param child the child
@@ -146,10 +168,10 @@ public class ParenthoodRegistry {
 
     public Integer getChildrenCount(Type type) {
         ITypeBinding binding = type.getBinding();
-        if (binding == null) {
+        String fqn = binding != null ? this.getQualifiedName(binding) : type.getFullyQualifiedName();
+        if (fqn == null) {
             return 0;
         }
-        String fqn = this.getQualifiedName(binding);
         Set<String> children = this.parenthoodMap.get(fqn);
         if (children != null) {
             return children.size();
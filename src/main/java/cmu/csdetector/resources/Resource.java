@@ -26,6 +26,13 @@ public abstract class Resource extends Observable {
 
     private List<ExtractedMethod> extractedMethods;
 
+    /**
+     * Line numbers of resources restored from a project snapshot, which carry no AST node
+     */
+    private transient int startLineNumber;
+
+    private transient int endLineNumber;
+
     public Resource(SourceFile sourceFile, ASTNode node) {
         this.metricsValues = new HashMap<>();
         this.sourceFile = sourceFile;
@@ -36,6 +43,20 @@ public abstract class Resource extends Observable {
         identifyKind();
     }
 
+    /**
+     * Constructor for a resource restored from a project snapshot
+     */
+    protected Resource(SourceFile sourceFile, String fullyQualifiedName, String kind, int startLineNumber, int endLineNumber) {
+        this.metricsValues = new HashMap<>();
+        this.sourceFile = sourceFile;
+        this.fullyQualifiedName = fullyQualifiedName;
+        this.kind = kind;
+        this.startLineNumber = startLineNumber;
+        this.endLineNumber = endLineNumber;
+        this.smells = new ArrayList<>();
+        this.extractedMethods = new ArrayList<>();
+    }
+
     protected abstract void identifyKind();
 
     public String getKind() {
@@ -56,11 +77,17 @@ public abstract class Resource extends Observable {
      * @return line where node starts
      */
     public int getStartLineNumber() {
+        if (node == null) {
+            return startLineNumber;
+        }
         CompilationUnit compUnit = sourceFile.getCompilationUnit();
         return compUnit.getLineNumber(node.getStartPosition());
     }
 
     public int getEndLineNumber() {
+        if (node == null) {
+            return endLineNumber;
+        }
         CompilationUnit compUnit = sourceFile.getCompilationUnit();
         return compUnit.getLineNumber(node.getStartPosition() + node.getLength());
     }
@@ -81,6 +108,10 @@ public abstract class Resource extends Observable {
         return this.metricsValues.get(metricName);
     }
 
+    public Map<MetricName, Double> getMetricValues() {
+        return metricsValues;
+    }
+
     public String getFullyQualifiedName() {
         return fullyQualifiedName;
     }
@@ -4,15 +4,17 @@ import cmu.csdetector.ast.visitors.MethodCollector;
 import cmu.csdetector.resources.loader.SourceFile;
 import org.eclipse.jdt.core.dom.*;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 public class Type extends Resource {
 
     private List<Method> methods;
 
+    /**
+     * Methods declared by the type (not by its nested types), by name. The first of overloaded methods is kept.
+     */
+    private transient Map<String, Method> methodsByName;
+
     private transient Set<Type> children;
 
     public TypeDeclaration getNodeAsTypeDeclaration() {
@@ -20,12 +22,15 @@ public class Type extends Resource {
     }
 
     public ITypeBinding getBinding() {
+        if (this.getNode() == null) {
+            return null;
+        }
         ITypeBinding binding = this.getNodeAsTypeDeclaration().resolveBinding();
         return binding;
     }
 
     public ITypeBinding getSuperclassBinding() {
-        ITypeBinding binding = this.getNodeAsTypeDeclaration().resolveBinding();
+        ITypeBinding binding = this.getBinding();
         if (binding != null) {
             ITypeBinding superclass = binding.getSuperclass();
             return superclass;
@@ -84,6 +89,16 @@ public class Type extends Resource {
         ParenthoodRegistry.getInstance().registerChild(this);
     }
 
+    /**
+     * Restores a type from a project snapshot, along with its already restored methods
+     */
+    public Type(SourceFile sourceFile, String fullyQualifiedName, String kind, int startLineNumber, int endLineNumber, List<Method> methods) {
+        super(sourceFile, fullyQualifiedName, kind, startLineNumber, endLineNumber);
+        this.children = new HashSet<>();
+        this.methods = methods;
+        this.indexMethods();
+    }
+
     private void searchForMethods() {
         this.methods = new ArrayList<>();
         MethodCollector visitor = new MethodCollector();
@@ -95,16 +110,25 @@ public class Type extends Resource {
             Method method = new Method(getSourceFile(), methodDeclaration);
             this.methods.add(method);
         }
+        this.indexMethods();
     }
 
-    public Method findMethodByName(String name) {
+    private void indexMethods() {
+        this.methodsByName = new HashMap<>();
+        String prefix = this.getFullyQualifiedName() + ".";
         for (Method method : this.methods) {
-            String toBeFound = this.getFullyQualifiedName() + "." + name;
-            if (method.getFullyQualifiedName().equals(toBeFound)) {
-                return method;
+            String methodFqn = method.getFullyQualifiedName();
+            if (methodFqn != null && methodFqn.startsWith(prefix) && methodFqn.indexOf('.', prefix.length()) < 0) {
+                this.methodsByName.putIfAbsent(methodFqn.substring(prefix.length()), method);
             }
         }
-        return null;
+    }
+
+    /**
+     * The method of the given name the type declares, the first one if it is overloaded
+     */
+    public Method findMethodByName(String name) {
+        return methodsByName.get(name);
     }
 
     public List<Method> getMethods() {
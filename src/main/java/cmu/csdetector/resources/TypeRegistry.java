@@ -0,0 +1,124 @@
+package cmu.csdetector.resources;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.PackageDeclaration;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Index of the loaded types of the project, for the lookups across types, filled by the loaders once a type is built:
+ * 		types by fully qualified name, by simple name and by package
+ * 		methods by binding key
+ * The methods of a given type are looked up on the type itself (see {@link Type#findMethodByName(String)}).
+ *
+ * A type loaded again under the same qualified name replaces the previous one, whose methods are dropped.
+ * Lookups can be made from any thread.
+ */
+public class TypeRegistry {
+
+    private static TypeRegistry singleton;
+
+    private final Map<String, Type> typesByQualifiedName;
+
+    private final Map<String, List<Type>> typesBySimpleName;
+
+    private final Map<String, List<Type>> typesByPackage;
+
+    private final Map<String, Method> methodsByKey;
+
+    static {
+        singleton = new TypeRegistry();
+    }
+
+    private TypeRegistry() {
+        this.typesByQualifiedName = new ConcurrentHashMap<>();
+        this.typesBySimpleName = new ConcurrentHashMap<>();
+        this.typesByPackage = new ConcurrentHashMap<>();
+        this.methodsByKey = new ConcurrentHashMap<>();
+    }
+
+    public static TypeRegistry getInstance() {
+        return singleton;
+    }
+
+    public synchronized void register(Type type) {
+        String fqn = type.getFullyQualifiedName();
+        if (fqn != null) {
+            Type previous = typesByQualifiedName.put(fqn, type);
+            if (previous != null) {
+                this.unregister(previous);
+            }
+        }
+        typesBySimpleName.computeIfAbsent(getSimpleName(type), k -> new CopyOnWriteArrayList<>()).add(type);
+        typesByPackage.computeIfAbsent(getPackageName(type), k -> new CopyOnWriteArrayList<>()).add(type);
+
+        for (Method method : type.getMethods()) {
+            IMethodBinding binding = method.getBinding();
+            if (binding != null) {
+                methodsByKey.put(binding.getKey(), method);
+            }
+        }
+    }
+
+    private void unregister(Type type) {
+        typesBySimpleName.getOrDefault(getSimpleName(type), Collections.emptyList()).remove(type);
+        typesByPackage.getOrDefault(getPackageName(type), Collections.emptyList()).remove(type);
+        // the methods of the replaced type, unless a type registered since holds their key
+        methodsByKey.values().removeAll(type.getMethods());
+    }
+
+    private static String getSimpleName(Type type) {
+        if (type.getNode() != null) {
+            return type.getNodeAsTypeDeclaration().getName().getIdentifier();
+        }
+        String fqn = type.getFullyQualifiedName();
+        return fqn.substring(fqn.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Package of the type, the empty string for the default package. Types restored from a snapshot have neither
+     * binding nor node, their package is guessed from their qualified name.
+     */
+    public static String getPackageName(Type type) {
+        ITypeBinding binding = type.getBinding();
+        if (binding != null) {
+            return binding.getPackage().getName();
+        }
+        if (type.getNode() != null) {
+            PackageDeclaration declaration = ((CompilationUnit) type.getNode().getRoot()).getPackage();
+            return declaration == null ? "" : declaration.getName().getFullyQualifiedName();
+        }
+        String fqn = type.getFullyQualifiedName();
+        return fqn.lastIndexOf('.') < 0 ? "" : fqn.substring(0, fqn.lastIndexOf('.'));
+    }
+
+    public Type getType(String fullyQualifiedName) {
+        return typesByQualifiedName.get(fullyQualifiedName);
+    }
+
+    public List<Type> getTypesBySimpleName(String simpleName) {
+        return Collections.unmodifiableList(typesBySimpleName.getOrDefault(simpleName, Collections.emptyList()));
+    }
+
+    /**
+     * Types of the package, in loading order
+     */
+    public List<Type> getTypesInPackage(String packageName) {
+        return Collections.unmodifiableList(typesByPackage.getOrDefault(packageName, Collections.emptyList()));
+    }
+
+    public Method getMethod(String bindingKey) {
+        return methodsByKey.get(bindingKey);
+    }
+
+    public synchronized void reset() {
+        this.typesByQualifiedName.clear();
+        this.typesBySimpleName.clear();
+        this.typesByPackage.clear();
+        this.methodsByKey.clear();
+    }
+}
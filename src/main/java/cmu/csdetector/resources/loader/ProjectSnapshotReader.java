@@ -0,0 +1,190 @@
+package cmu.csdetector.resources.loader;
+
+import cmu.csdetector.graph.CallGraph;
+import cmu.csdetector.metrics.MetricName;
+import cmu.csdetector.metrics.calculators.AggregateMetricValues;
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.ParenthoodRegistry;
+import cmu.csdetector.resources.Resource;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.resources.TypeRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Restores a project from a snapshot written by {@link ProjectSnapshotWriter}. The file is
+ * memory-mapped and decoded in a single pass. Besides the source files and their resources,
+ * the call graph, the parenthood registry and the aggregate metric values are restored too,
+ * so the smell detectors behave as if the sources had just been parsed.
+ *
+ * The restored resources have no AST nodes, which means that anything relying on them
+ * (such as the extraction of opportunities) is not available.
+ */
+public class ProjectSnapshotReader {
+
+    private MappedByteBuffer buffer;
+
+    private List<SourceFile> sourceFiles;
+
+    public ProjectSnapshotReader(File snapshotFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        this.load();
+        this.buffer = null;
+    }
+
+    private void load() throws IOException {
+        if (buffer.getInt() != ProjectSnapshotWriter.MAGIC) {
+            throw new IOException("Not a project snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != ProjectSnapshotWriter.VERSION) {
+            throw new IOException("Unsupported project snapshot version " + version);
+        }
+        this.readAggregateValues();
+        this.readHierarchy();
+        this.readCallGraph();
+        this.readSourceFiles();
+    }
+
+    private void readAggregateValues() {
+        AggregateMetricValues aggregate = AggregateMetricValues.getInstance();
+        aggregate.reset();
+        int metrics = buffer.getInt();
+        for (int i = 0; i < metrics; i++) {
+            MetricName metric = MetricName.valueOf(readString());
+            double[] values = new double[buffer.getInt()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = buffer.getDouble();
+            }
+            aggregate.restore(metric, values);
+        }
+    }
+
+    private void readHierarchy() {
+        ParenthoodRegistry registry = ParenthoodRegistry.getInstance();
+        registry.reset();
+        int parents = buffer.getInt();
+        for (int i = 0; i < parents; i++) {
+            String parent = readString();
+            for (String child : readStrings()) {
+                registry.addChild(parent, child);
+            }
+        }
+        int types = buffer.getInt();
+        for (int i = 0; i < types; i++) {
+            String type = readString();
+            registry.addAncestors(type, new HashSet<>(readStrings()));
+        }
+    }
+
+    private void readCallGraph() {
+        CallGraph graph = CallGraph.getInstance();
+        graph.reset();
+        int callers = buffer.getInt();
+        for (int i = 0; i < callers; i++) {
+            String caller = readString();
+            for (String callee : readStrings()) {
+                graph.addMethodCall(caller, callee);
+            }
+        }
+    }
+
+    private void readSourceFiles() {
+        int files = buffer.getInt();
+        this.sourceFiles = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            SourceFile sourceFile = new SourceFile(readString());
+            int types = buffer.getInt();
+            for (int j = 0; j < types; j++) {
+                sourceFile.getTypes().add(this.readType(sourceFile));
+            }
+            this.sourceFiles.add(sourceFile);
+        }
+    }
+
+    private Type readType(SourceFile sourceFile) {
+        String fqn = readString();
+        String kind = readString();
+        int startLine = buffer.getInt();
+        int endLine = buffer.getInt();
+        Map<MetricName, Double> metrics = this.readMetrics();
+
+        int methodCount = buffer.getInt();
+        List<Method> methods = new ArrayList<>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+            methods.add(this.readMethod(sourceFile));
+        }
+
+        Type type = new Type(sourceFile, fqn, kind, startLine, endLine, methods);
+        TypeRegistry.getInstance().register(type);
+        this.addMetrics(type, metrics);
+        return type;
+    }
+
+    private Method readMethod(SourceFile sourceFile) {
+        String fqn = readString();
+        String kind = readString();
+        int startLine = buffer.getInt();
+        int endLine = buffer.getInt();
+        Map<MetricName, Double> metrics = this.readMetrics();
+        List<String> parametersTypes = readStrings();
+        String declaringType = readString();
+        int calledTypes = buffer.getInt();
+        Map<String, Integer> callCounts = new HashMap<>();
+        for (int i = 0; i < calledTypes; i++) {
+            String calledType = readString();
+            callCounts.put(calledType, buffer.getInt());
+        }
+
+        Method method = new Method(sourceFile, fqn, kind, startLine, endLine, parametersTypes, declaringType, callCounts);
+        this.addMetrics(method, metrics);
+        return method;
+    }
+
+    private Map<MetricName, Double> readMetrics() {
+        int count = buffer.getInt();
+        Map<MetricName, Double> metrics = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            MetricName metric = MetricName.valueOf(readString());
+            boolean present = buffer.get() != 0;
+            double value = buffer.getDouble();
+            metrics.put(metric, present ? value : null);
+        }
+        return metrics;
+    }
+
+    private void addMetrics(Resource resource, Map<MetricName, Double> metrics) {
+        metrics.forEach(resource::addMetricValue);
+    }
+
+    private List<String> readStrings() {
+        int count = buffer.getInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    private String readString() {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public List<SourceFile> getLoadedSourceFiles() {
+        return sourceFiles;
+    }
+}
@@ -0,0 +1,164 @@
+package cmu.csdetector.resources.loader;
+
+import cmu.csdetector.graph.CallGraph;
+import cmu.csdetector.metrics.MetricName;
+import cmu.csdetector.metrics.calculators.AggregateMetricValues;
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.ParenthoodRegistry;
+import cmu.csdetector.resources.Resource;
+import cmu.csdetector.resources.Type;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Dumps the loaded project into a binary snapshot, once the metrics were collected.
+ * The snapshot holds everything the smell detectors and the output stage need
+ * (resources, metric values, call graph edges, hierarchy and aggregate statistics),
+ * so they can be run again by {@link ProjectSnapshotReader} without parsing the sources.
+ *
+ * Layout (big endian, strings are an int length followed by UTF-8 bytes, -1 for null):
+ * 		header: magic, version
+ * 		aggregate statistics: metric name and all the registered values
+ * 		hierarchy: children and ancestors of each type
+ * 		call graph: caller and callee binding keys
+ * 		source files: relative path and types, each type followed by its methods
+ */
+public class ProjectSnapshotWriter {
+
+    static final int MAGIC = 0x43534453; // "CSDS"
+
+    static final int VERSION = 1;
+
+    private final File snapshotFile;
+
+    public ProjectSnapshotWriter(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public void write(List<Type> types) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            this.writeAggregateValues(out);
+            this.writeHierarchy(out, types);
+            this.writeCallGraph(out);
+            this.writeSourceFiles(out, types);
+        }
+    }
+
+    private void writeAggregateValues(DataOutputStream out) throws IOException {
+        AggregateMetricValues aggregate = AggregateMetricValues.getInstance();
+        Set<MetricName> metrics = aggregate.getRegisteredMetrics();
+        out.writeInt(metrics.size());
+        for (MetricName metric : metrics) {
+            writeString(out, metric.name());
+            double[] values = aggregate.getRegisteredValues(metric);
+            out.writeInt(values.length);
+            for (double value : values) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    private void writeHierarchy(DataOutputStream out, List<Type> types) throws IOException {
+        ParenthoodRegistry registry = ParenthoodRegistry.getInstance();
+        Map<String, Set<String>> parenthood = registry.getParenthoodMap();
+        out.writeInt(parenthood.size());
+        for (Map.Entry<String, Set<String>> entry : parenthood.entrySet()) {
+            writeString(out, entry.getKey());
+            writeStrings(out, entry.getValue());
+        }
+
+        List<Type> boundTypes = new ArrayList<>();
+        for (Type type : types) {
+            if (type.getFullyQualifiedName() != null) {
+                boundTypes.add(type);
+            }
+        }
+        out.writeInt(boundTypes.size());
+        for (Type type : boundTypes) {
+            writeString(out, type.getFullyQualifiedName());
+            writeStrings(out, registry.getAncestors(type));
+        }
+    }
+
+    private void writeCallGraph(DataOutputStream out) throws IOException {
+        Map<String, Set<String>> calls = CallGraph.getInstance().getCallsByKey();
+        out.writeInt(calls.size());
+        for (Map.Entry<String, Set<String>> entry : calls.entrySet()) {
+            writeString(out, entry.getKey());
+            writeStrings(out, entry.getValue());
+        }
+    }
+
+    private void writeSourceFiles(DataOutputStream out, List<Type> types) throws IOException {
+        // keep the order in which the types were loaded
+        Set<SourceFile> sourceFiles = new LinkedHashSet<>();
+        for (Type type : types) {
+            sourceFiles.add(type.getSourceFile());
+        }
+
+        out.writeInt(sourceFiles.size());
+        for (SourceFile sourceFile : sourceFiles) {
+            writeString(out, sourceFile.getFileRelativePath());
+            out.writeInt(sourceFile.getTypes().size());
+            for (Type type : sourceFile.getTypes()) {
+                this.writeResource(out, type);
+                out.writeInt(type.getMethods().size());
+                for (Method method : type.getMethods()) {
+                    this.writeMethod(out, method);
+                }
+            }
+        }
+    }
+
+    private void writeMethod(DataOutputStream out, Method method) throws IOException {
+        this.writeResource(out, method);
+        writeStrings(out, method.getParametersTypes());
+        writeString(out, method.getDeclaringTypeName());
+        Map<String, Integer> callCounts = method.getTypeCallCounts();
+        out.writeInt(callCounts.size());
+        for (Map.Entry<String, Integer> entry : callCounts.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private void writeResource(DataOutputStream out, Resource resource) throws IOException {
+        writeString(out, resource.getFullyQualifiedName());
+        writeString(out, resource.getKind());
+        out.writeInt(resource.getStartLineNumber());
+        out.writeInt(resource.getEndLineNumber());
+
+        Map<MetricName, Double> metrics = resource.getMetricValues();
+        out.writeInt(metrics.size());
+        for (Map.Entry<MetricName, Double> entry : metrics.entrySet()) {
+            writeString(out, entry.getKey().name());
+            out.writeBoolean(entry.getValue() != null);
+            out.writeDouble(entry.getValue() != null ? entry.getValue() : 0d);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
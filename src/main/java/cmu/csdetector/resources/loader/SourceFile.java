@@ -2,6 +2,7 @@ package cmu.csdetector.resources.loader;
 
 import cmu.csdetector.ast.visitors.TypeDeclarationCollector;
 import cmu.csdetector.resources.Type;
+import cmu.csdetector.resources.TypeRegistry;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
@@ -30,6 +31,15 @@ public class SourceFile {
         this.searchForTypes();
     }
 
+    /**
+     * Source file restored from a project snapshot. It has neither a file nor a compilation unit,
+     * its types are added by the snapshot reader.
+     */
+    SourceFile(String fileRelativePath) {
+        this.fileRelativePath = fileRelativePath;
+        this.types = new ArrayList<>();
+    }
+
     private void searchForTypes() {
         this.types = new ArrayList<>();
         TypeDeclarationCollector visitor = new TypeDeclarationCollector();
@@ -37,6 +47,7 @@ public class SourceFile {
         List<TypeDeclaration> typeDeclarations = visitor.getNodesCollected();
         for (TypeDeclaration typeDeclaration : typeDeclarations) {
             Type type = new Type(this, typeDeclaration);
+            TypeRegistry.getInstance().register(type);
             this.types.add(type);
         }
     }
@@ -1,14 +1,13 @@
 package cmu.csdetector.smells.detectors;
 
-import cmu.csdetector.ast.visitors.ClassMethodInvocationVisitor;
 import cmu.csdetector.resources.Method;
 import cmu.csdetector.resources.Resource;
 import cmu.csdetector.smells.Smell;
 import cmu.csdetector.smells.SmellDetector;
 import cmu.csdetector.smells.SmellName;
-import org.eclipse.jdt.core.dom.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,27 +16,24 @@ public class FeatureEnvy extends SmellDetector {
     public List<Smell> detect(Resource resource) {
         List<Smell> smells = new ArrayList<>();
         Method method = (Method) resource;
-        IMethodBinding binding = method.getBinding();
+        String declaringClass = method.getDeclaringTypeName();
         // not a method
-        if (binding == null) {
+        if (declaringClass == null) {
             return smells;
         }
-        ITypeBinding declaringClass = binding.getDeclaringClass();
 
         // collect all method calls
-        ClassMethodInvocationVisitor visitor = new ClassMethodInvocationVisitor(declaringClass);
-        resource.getNode().accept(visitor);
-        Map<ITypeBinding, Integer> methodCalls = visitor.getMethodsCalls();
+        Map<String, Integer> methodCalls = new HashMap<>(method.getTypeCallCounts());
 
         // get internal calls, if `this` is not in the map, the internal calls is 0
         Integer internalCalls = methodCalls.getOrDefault(declaringClass, 0);
         methodCalls.remove(declaringClass); // now the map only contains external calls
 
         // check if any external method calls > internal calls
-        methodCalls.forEach((tb, externalCalls) -> {
+        methodCalls.forEach((typeName, externalCalls) -> {
             if (externalCalls > internalCalls) {
                 Smell smell = super.createSmell(resource);
-                smell.setReason("EXTERNAL_METHOD_CALLS to " + tb.getQualifiedName() + " (" + externalCalls + ") > INTERNAL_CALLS (" + internalCalls + ")");
+                smell.setReason("EXTERNAL_METHOD_CALLS to " + typeName + " (" + externalCalls + ") > INTERNAL_CALLS (" + internalCalls + ")");
                 smells.add(smell);
             }
         });
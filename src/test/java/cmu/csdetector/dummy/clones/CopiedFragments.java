@@ -0,0 +1,40 @@
+package cmu.csdetector.dummy.clones;
+
+public class CopiedFragments {
+
+	private int total;
+
+	private int count;
+
+	public void original(int[] values) {
+		int sum = 0;
+		for (int i = 0; i < values.length; i++) {
+			sum += values[i] * 2;
+		}
+		total = sum;
+	}
+
+	public void renamed(int[] items) {
+		int acc = 0;
+		for (int k = 0; k < items.length; k++) {
+			acc += items[k] * 3;
+		}
+		total = acc;
+	}
+
+	public void otherField(int[] values) {
+		int sum = 0;
+		for (int i = 0; i < values.length; i++) {
+			sum += values[i] * 2;
+		}
+		count = sum;
+	}
+
+	public void otherOperator(int[] values) {
+		int sum = 0;
+		for (int i = 0; i < values.length; i++) {
+			sum -= values[i] * 2;
+		}
+		total = sum;
+	}
+}
@@ -0,0 +1,39 @@
+package cmu.csdetector.dummy.flow;
+
+public class Jumps {
+
+	public int firstNegative(int[] values) {
+		int found = -1;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] >= 0) {
+				continue;
+			}
+			found = i;
+			break;
+		}
+		return found;
+	}
+
+	public int sign(int value) {
+		if (value < 0) {
+			return -1;
+		}
+		int sign = value == 0 ? 0 : 1;
+		return sign;
+	}
+
+	public int parse(String text) {
+		int value = 0;
+		try {
+			if (text.isEmpty()) {
+				throw new IllegalArgumentException();
+			}
+			value = Integer.parseInt(text);
+		} catch (RuntimeException e) {
+			value = -1;
+		} finally {
+			text = null;
+		}
+		return value;
+	}
+}
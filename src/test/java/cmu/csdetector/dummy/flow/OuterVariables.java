@@ -0,0 +1,15 @@
+package cmu.csdetector.dummy.flow;
+
+public class OuterVariables {
+
+	public int conditionalWrite(int[] values, boolean reset) {
+		int total = values.length;
+		int last;
+		if (reset) {
+			total = 0;
+		}
+		last = values[0];
+		total += last;
+		return total;
+	}
+}
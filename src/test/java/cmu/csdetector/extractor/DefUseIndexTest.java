@@ -0,0 +1,73 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.util.GetTargetType;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DefUseIndexTest {
+
+    /**
+     * Node, variable and access of the occurrences of the sequence, found with the index
+     */
+    private List<List<Integer>> indexed(DefUseIndex index, StatementSequence sequence) {
+        List<List<Integer>> occurrences = new ArrayList<>();
+        int[] range = index.getRange(sequence);
+        for (int i = range[0]; i < range[1]; i++) {
+            occurrences.add(List.of(index.getNode(i), index.getVariable(i), index.getAccess(i)));
+        }
+        return occurrences;
+    }
+
+    /**
+     * Node, variable and access of the occurrences of the sequence, found by walking all its nodes
+     */
+    private List<List<Integer>> scanned(ControlFlowGraph graph, StatementSequence sequence) {
+        List<List<Integer>> occurrences = new ArrayList<>();
+        int[] range = graph.getNodeRange(sequence);
+        for (int n = range[0]; n < range[1]; n++) {
+            for (int[] reference : graph.getNode(n).getReferences()) {
+                occurrences.add(List.of(n, reference[0], reference[1]));
+            }
+        }
+        return occurrences;
+    }
+
+    private void assertSameAsScan(MethodDeclaration declaration) {
+        ControlFlowGraph graph = new ControlFlowGraph(declaration);
+        DefUseIndex index = new DefUseIndex(graph);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        CompilationUnit cu = (CompilationUnit) declaration.getRoot();
+        int first = cu.getLineNumber(declaration.getStartPosition());
+        int last = cu.getLineNumber(declaration.getStartPosition() + declaration.getLength());
+        for (int from = first; from <= last; from++) {
+            for (int to = from; to <= last; to++) {
+                StatementSequence sequence = finder.find(from, to);
+                if (sequence != null) {
+                    // the nodes of a sequence are numbered in source order, as its occurrences are
+                    assertEquals(scanned(graph, sequence), indexed(index, sequence));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rangesOfStatement() throws IOException {
+        Method method = GetTargetType.getRefactoringExample();
+        assertSameAsScan((MethodDeclaration) method.getNode());
+    }
+
+    @Test
+    void rangesOfComplexMethod() throws IOException {
+        Method method = GetTargetType.getComplexClass().findMethodByName("gradManifests");
+        assertSameAsScan((MethodDeclaration) method.getNode());
+    }
+}
@@ -1,53 +1,106 @@
 package cmu.csdetector.extractor;
 
+import cmu.csdetector.extractor.evaluator.ClassCohesionProfile;
 import cmu.csdetector.util.GetTargetType;
+import org.eclipse.jdt.core.dom.IfStatement;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.SortedMap;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 class ExtractedMethodTest {
 
     @Test
-    void createMethodFromLineNumbers() throws IOException {
+    void createMethodFromStatementSequences() throws IOException {
         // var smellyTarget = GetTargetType.getRefactoringExample();
         var smellyTarget = GetTargetType.getComplexClass();
-        var sourceFile = smellyTarget.getSourceFile().getFile();
 
         StatementVisitor visitor = new StatementVisitor();
         smellyTarget.getNode().accept(visitor);
         SortedMap<Integer, Set<String>> statementsTable = visitor.getLineNumToStatementsTable(smellyTarget.getSourceFile().getCompilationUnit());
 
         // extract the opportunities
-        Set<List<Integer>> opportunitySet = new HashSet<>();
-        for (int step = 1; step < statementsTable.size(); step++) {
-            StepIterator stepIterator = new StepIterator(statementsTable, step);
-            while (stepIterator.hasNext()) {
-                List<List<Integer>> opportunities = stepIterator.next();
-                // add the opportunities whose length is greater than 1 to the map
-                opportunitySet.addAll(opportunities);
-            }
+        Set<List<Integer>> opportunitySet = new HashSet<>(new StepIterator(statementsTable).getAllOpportunities());
+        List<StatementSequence> sequences = new StatementSequenceFinder(smellyTarget.getNode()).findAll(opportunitySet);
+        assertFalse(sequences.isEmpty());
+        String resource = smellyTarget.getNode().toString();
+
+        for (StatementSequence sequence : sequences) {
+            ExtractedMethod extractedMethod = new ExtractedMethod(sequence);
+            extractedMethod.create();
+            MethodDeclaration method = extractedMethod.getExtractedMethodDeclaration();
+            // every sequence is made of whole statements, so none is dropped
+            assertNotNull(method);
+            assertEquals(sequence.getStatements().size(), method.getBody().statements().size());
+            System.out.println("Opportunity: " + sequence);
+            System.out.println(method);
+            System.out.println("--------------------");
         }
+        // the statements are copied, the resource AST is left untouched
+        assertEquals(resource, smellyTarget.getNode().toString());
+    }
+
+    @Test
+    void sequenceOfWholeStatements() throws IOException {
+        var smellyTarget = GetTargetType.getComplexClass();
+        StatementSequenceFinder finder = new StatementSequenceFinder(smellyTarget.getNode());
+
+        // the closing brace of the loop is out of the range, so only the if statement in it is taken
+        StatementSequence sequence = finder.find(30, 37);
+        assertEquals(30, sequence.getStartLine());
+        assertEquals(33, sequence.getEndLine());
+        assertEquals(1, sequence.getStatements().size());
+        assertTrue(sequence.getFirstStatement() instanceof IfStatement);
+
+        // no whole statement on a closing brace
+        assertNull(finder.find(38, 38));
+    }
+
+    @Test
+    void calculateLCOMWithoutTemporaryFiles() throws IOException {
+        var smellyTarget = GetTargetType.getComplexClass();
+        var sourceFile = smellyTarget.getSourceFile().getFile();
+        var directory = sourceFile.getParentFile();
+        int filesBefore = directory.list().length;
+
+        ExtractedMethod extractedMethod = new ExtractedMethod(new StatementSequenceFinder(smellyTarget.getNode()).find(35, 37));
+        extractedMethod.create();
+        assertNotNull(extractedMethod.getExtractedMethodDeclaration());
+        extractedMethod.calculateLCOM(new ClassCohesionProfile(smellyTarget.getNodeAsTypeDeclaration()));
+
+        assertEquals(filesBefore, directory.list().length);
+        assertFalse(new File(directory, "Opportunity.java").exists());
+        assertFalse(new File(directory, "ComplexClassRefactored.java").exists());
+        assertEquals(0.0, extractedMethod.getOpportunityLCOM());
+        assertTrue(extractedMethod.getOriginalLCOM() > 0);
+    }
+
+    @Test
+    void describeBeforeCreating() throws IOException {
+        var smellyTarget = GetTargetType.getComplexClass();
+        ClassCohesionProfile profile = new ClassCohesionProfile(smellyTarget.getNodeAsTypeDeclaration());
+
+        // the LCOMs only depend on the line range, so they are known before any AST is built
+        ExtractedMethod extractedMethod = new ExtractedMethod(new StatementSequenceFinder(smellyTarget.getNode()).find(35, 37));
+        extractedMethod.calculateLCOM(profile);
+        assertNull(extractedMethod.getExtractedMethodDeclaration());
+        double refactoredLCOM = extractedMethod.getRefactoredLCOM();
+
+        extractedMethod.create();
+        extractedMethod.calculateLCOM(profile);
+        assertNotNull(extractedMethod.getExtractedMethodDeclaration());
+        assertEquals(refactoredLCOM, extractedMethod.getRefactoredLCOM());
 
-        opportunitySet.forEach((List<Integer> opportunity) -> {
-            int startLine = opportunity.get(0);
-            int endLine = opportunity.get(opportunity.size() - 1);
-            try {
-                ExtractedMethod extractedMethod = new ExtractedMethod(sourceFile, startLine, endLine);
-                extractedMethod.create();
-                MethodDeclaration method = extractedMethod.getExtractedMethodDeclaration();
-                if (method != null) {
-                    System.out.println("Opportunity: [" + startLine + " - " + endLine + "]");
-                    System.out.println(method);
-                    System.out.println("--------------------");
-                }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        // once released, only the description is left
+        extractedMethod.release();
+        assertNull(extractedMethod.getExtractedMethodDeclaration());
+        assertArrayEquals(new Integer[]{35, 37}, extractedMethod.getLineRange());
     }
 }
@@ -0,0 +1,118 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.util.TypeLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionCacheTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("extraction");
+    }
+
+    @AfterEach
+    void closeCache() throws IOException {
+        ExtractionCache.getInstance().reset();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private Type loadComplexClass() throws IOException {
+        Path sources = directory.resolve("src");
+        Files.createDirectories(sources);
+        File[] files = new File("examples/ComplexClass/src/main/java/paper/example").listFiles();
+        for (File file : files) {
+            Files.copy(file.toPath(), sources.resolve(file.getName()));
+        }
+        List<Type> types = TypeLoader.loadAllFromDir(sources.toFile());
+        return types.stream().filter(t -> t.getFullyQualifiedName().equals("paper.example.ComplexClass")).findFirst().get();
+    }
+
+    private ExtractedMethod opportunity() {
+        ExtractedMethod em = new ExtractedMethod(16, 28, "fullName", List.of("Resource[][] rec", "int j"), "String");
+        em.setTargetClass("ComplexClass");
+        Map<String, Double> before = new LinkedHashMap<>();
+        before.put("paper.example.ComplexClass.gradManifests", 12.0);
+        em.setBeforeRefactorMetrics(before);
+        Map<String, Double> after = new LinkedHashMap<>(before);
+        after.put("paper.example.ComplexClass.gradManifests", 8.0);
+        after.put("paper.example.ComplexClass.fullName", 5.0);
+        em.setAfterRefactorMetrics(after);
+        return em;
+    }
+
+    @Test
+    void resultsKeptAcrossRuns() throws IOException {
+        Type complexClass = loadComplexClass();
+        Method method = complexClass.findMethodByName("gradManifests");
+        File cacheFile = directory.resolve("extraction.cache").toFile();
+        ExtractionCache cache = ExtractionCache.getInstance();
+
+        cache.open(cacheFile);
+        assertNull(cache.lookup(method));
+        cache.store(method, complexClass, Collections.emptyList(), List.of(opportunity()));
+        cache.save();
+
+        // the next run
+        cache.open(cacheFile);
+        List<ExtractedMethod> cached = cache.lookup(method);
+        assertNotNull(cached);
+        assertEquals(1, cache.getHits());
+        ExtractedMethod em = cached.get(0);
+        ExtractedMethod expected = opportunity();
+        assertArrayEquals(expected.getLineRange(), em.getLineRange());
+        assertEquals(expected.getMethodName(), em.getMethodName());
+        assertEquals(expected.getParameters(), em.getParameters());
+        assertEquals(expected.getReturnType(), em.getReturnType());
+        assertEquals(expected.getTargetClass(), em.getTargetClass());
+        assertEquals(expected.getBeforeRefactorMetrics(), em.getBeforeRefactorMetrics());
+        assertEquals(new ArrayList<>(expected.getAfterRefactorMetrics().keySet()), new ArrayList<>(em.getAfterRefactorMetrics().keySet()));
+        assertEquals(expected.getAfterRefactorMetrics(), em.getAfterRefactorMetrics());
+        // another resource of the class
+        assertNull(cache.lookup(complexClass.findMethodByName("grabRes")));
+    }
+
+    @Test
+    void changedSourcesNotTakenFromTheCache() throws IOException {
+        Type complexClass = loadComplexClass();
+        Method method = complexClass.findMethodByName("gradManifests");
+        File cacheFile = directory.resolve("extraction.cache").toFile();
+        ExtractionCache cache = ExtractionCache.getInstance();
+        cache.open(cacheFile);
+        cache.store(method, complexClass, Collections.emptyList(), List.of(opportunity()));
+        cache.save();
+
+        Files.writeString(complexClass.getSourceFile().getFile().toPath(), "// changed\n", StandardOpenOption.APPEND);
+        cache.open(cacheFile);
+        assertNull(cache.lookup(method));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void disabledUntilOpened() throws IOException {
+        Type complexClass = loadComplexClass();
+        Method method = complexClass.findMethodByName("gradManifests");
+        ExtractionCache cache = ExtractionCache.getInstance();
+
+        cache.store(method, complexClass, Collections.emptyList(), List.of(opportunity()));
+        assertFalse(cache.isEnabled());
+        assertNull(cache.lookup(method));
+    }
+}
@@ -0,0 +1,121 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Resource;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.smells.Smell;
+import cmu.csdetector.smells.SmellName;
+import cmu.csdetector.util.GetTargetType;
+import cmu.csdetector.util.TypeLoader;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionSchedulerTest {
+
+    /**
+     * Records the jobs as they start instead of extracting
+     */
+    private static class RecordingJob extends ExtractionJob {
+        private final List<ExtractionJob> started;
+
+        RecordingJob(Method method, List<ExtractionJob> started) {
+            super(method, () -> {});
+            this.started = started;
+        }
+
+        @Override
+        public void run() {
+            started.add(this);
+        }
+    }
+
+    private List<ExtractionJob> createJobs(Type type, List<ExtractionJob> started) {
+        List<ExtractionJob> jobs = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            jobs.add(new RecordingJob(method, started));
+        }
+        return jobs;
+    }
+
+    @Test
+    void largestJobsStartFirst() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        List<ExtractionJob> started = Collections.synchronizedList(new ArrayList<>());
+        List<ExtractionJob> jobs = createJobs(complexClass, started);
+        List<ExtractionJob> finished = new ArrayList<>();
+
+        new ExtractionScheduler(1).run(jobs, finished::add);
+
+        assertEquals(jobs.size(), started.size());
+        assertEquals(started, finished);
+        for (int i = 1; i < started.size(); i++) {
+            assertTrue(started.get(i - 1).getCost() >= started.get(i).getCost());
+        }
+    }
+
+    @Test
+    void everyJobFinishesOnce() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        List<ExtractionJob> started = Collections.synchronizedList(new ArrayList<>());
+        List<ExtractionJob> jobs = createJobs(complexClass, started);
+        List<ExtractionJob> finished = new ArrayList<>();
+
+        new ExtractionScheduler(4).run(jobs, finished::add);
+
+        assertEquals(jobs.size(), finished.size());
+        assertTrue(finished.containsAll(jobs));
+    }
+
+    @Test
+    void costGrowsWithTheMethod() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        Method longest = null;
+        Method shortest = null;
+        for (Method method : complexClass.getMethods()) {
+            int length = method.getNode().getLength();
+            if (longest == null || length > longest.getNode().getLength()) {
+                longest = method;
+            }
+            if (shortest == null || length < shortest.getNode().getLength()) {
+                shortest = method;
+            }
+        }
+        assertTrue(new ExtractionJob(longest, () -> {}).getCost() > new ExtractionJob(shortest, () -> {}).getCost());
+        // a resource is extracted once, whatever the number of its smells
+        assertEquals(ExtractionJob.estimateCost(longest.getNode()), new ExtractionJob(longest, () -> {}).getCost());
+    }
+
+    @Test
+    void oneExtractionPerSmellyResource() throws IOException {
+        Type type = TypeLoader.loadAllFromDir(new File("src/test/java/cmu/csdetector/dummy/smells")).stream()
+                .filter(t -> t.getFullyQualifiedName().endsWith(".FeatureEnvyMethod")).findFirst().get();
+        Method envious = type.findMethodByName("mostForeign");
+        envious.addAllSmells(List.of(new Smell(SmellName.FeatureEnvy, "foreign1"), new Smell(SmellName.FeatureEnvy, "foreign2")));
+        type.addAllSmells(List.of(new Smell(SmellName.GodClass)));
+
+        // records the extractions instead of running the extractor, each giving one opportunity
+        Map<Resource, Integer> runs = new ConcurrentHashMap<>();
+        List<ExtractionJob> jobs = ExtractionJob.createJobs(List.of(type), (resource, belongingType) -> () -> {
+            runs.merge(resource, 1, Integer::sum);
+            resource.addExtractedMethod(new ExtractedMethod(1, 2, "extractedMethod", List.of(), "void"));
+        });
+        new ExtractionScheduler(4).run(jobs, job -> {});
+
+        assertEquals(List.of(envious, type), jobs.stream().map(ExtractionJob::getResource).collect(Collectors.toList()));
+        assertEquals(2, jobs.get(0).getSmells().size());
+        assertEquals(Map.of(envious, 1, type, 1), runs);
+        // the opportunity is listed once, not once per smell
+        assertEquals(1, envious.getExtractedMethods().size());
+        assertEquals(1, type.getExtractedMethods().size());
+    }
+}
@@ -0,0 +1,47 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.util.TypeLoader;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FragmentFingerprintTest {
+
+    private String fingerprint(Type type, int startLine, int endLine) {
+        StatementSequence sequence = new StatementSequenceFinder(type.getNode()).find(startLine, endLine);
+        assertEquals(3, sequence.getStatements().size());
+        return FragmentFingerprint.of(sequence);
+    }
+
+    @Test
+    void copiesHaveTheSameFingerprint() throws IOException {
+        Type type = TypeLoader.loadAllFromDir(new File("src/test/java/cmu/csdetector/dummy/clones")).get(0);
+        String original = fingerprint(type, 10, 14);
+
+        // other variable names and literals
+        assertEquals(original, fingerprint(type, 18, 22));
+        // another field, another operator
+        assertNotEquals(original, fingerprint(type, 26, 30));
+        assertNotEquals(original, fingerprint(type, 34, 38));
+    }
+
+    @Test
+    void nameMemoizedByFingerprint() throws IOException {
+        Type type = TypeLoader.loadAllFromDir(new File("src/test/java/cmu/csdetector/dummy/clones")).get(0);
+        FragmentMemo memo = FragmentMemo.getInstance();
+        memo.reset();
+        AtomicInteger predictions = new AtomicInteger();
+
+        assertEquals("doubleSum", memo.getMethodName(fingerprint(type, 10, 14), () -> predictions.incrementAndGet() == 1 ? "doubleSum" : "other"));
+        assertEquals("doubleSum", memo.getMethodName(fingerprint(type, 18, 22), () -> predictions.incrementAndGet() == 1 ? "doubleSum" : "other"));
+        assertEquals(1, predictions.get());
+        assertEquals("other", memo.getMethodName(fingerprint(type, 26, 30), () -> predictions.incrementAndGet() == 1 ? "doubleSum" : "other"));
+        assertEquals(2, predictions.get());
+        memo.reset();
+    }
+}
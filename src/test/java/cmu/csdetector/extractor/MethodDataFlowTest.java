@@ -0,0 +1,171 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.util.GetTargetType;
+import cmu.csdetector.util.TypeLoader;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodDataFlowTest {
+
+    private List<String> names(List<IVariableBinding> variables) {
+        return variables.stream().map(IVariableBinding::getName).collect(Collectors.toList());
+    }
+
+    private MethodDeclaration loadFlowMethod(String className, String methodName) throws IOException {
+        Type type = TypeLoader.loadAllFromDir(new File("src/test/java/cmu/csdetector/dummy/flow")).stream()
+                .filter(t -> t.getFullyQualifiedName().endsWith("." + className)).findFirst().get();
+        return (MethodDeclaration) type.findMethodByName(methodName).getNode();
+    }
+
+    @Test
+    void signaturesOfComplexMethod() throws IOException {
+        Method method = GetTargetType.getComplexClass().findMethodByName("gradManifests");
+        MethodDeclaration declaration = (MethodDeclaration) method.getNode();
+        MethodDataFlow dataFlow = new MethodDataFlow(declaration);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        // rec = grabRes(new FileSet[]{(FileSet) rcs[i]}); only writes rec
+        StatementSequence assignment = finder.find(11, 11);
+        assertEquals(List.of("rcs", "i"), names(dataFlow.getParameters(assignment)));
+        assertEquals(List.of("rec"), names(dataFlow.getReturns(assignment)));
+
+        // the declaration of name, read after the sequence
+        StatementSequence declarationOfName = finder.find(16, 16);
+        assertEquals(List.of("rec", "j"), names(dataFlow.getParameters(declarationOfName)));
+        assertEquals(List.of("name"), names(dataFlow.getReturns(declarationOfName)));
+
+        // i++ in the inner loop is read by the updater of the outer one
+        StatementSequence twoReturns = finder.find(16, 29);
+        assertEquals(List.of("name", "i"), names(dataFlow.getReturns(twoReturns)));
+
+        // the body of the outer loop only writes i for the next iteration
+        StatementSequence body = finder.find(9, 37);
+        assertEquals(List.of("rcs", "i", "manifests"), names(dataFlow.getParameters(body)));
+        assertEquals(List.of("i"), names(dataFlow.getReturns(body)));
+
+        // the whole body needs the parameter, and nothing is left to read after it
+        StatementSequence whole = finder.find(6, 39);
+        assertEquals(List.of("rcs"), names(dataFlow.getParameters(whole)));
+        assertEquals(List.of(), names(dataFlow.getReturns(whole)));
+    }
+
+    @Test
+    void signaturesInLoop() throws IOException {
+        Method method = GetTargetType.getRefactoringExample();
+        MethodDeclaration declaration = (MethodDeclaration) method.getNode();
+        MethodDataFlow dataFlow = new MethodDataFlow(declaration);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        // the switch on the price code, then totalAmount += thisAmount; fields are not parameters
+        StatementSequence amounts = finder.find(24, 40);
+        assertEquals(List.of("each", "thisAmount", "totalAmount"), names(dataFlow.getParameters(amounts)));
+        assertEquals(List.of("thisAmount", "totalAmount"), names(dataFlow.getReturns(amounts)));
+
+        // frequentRenterPoints is read by the next iteration and after the loop
+        StatementSequence points = finder.find(43, 43);
+        assertEquals(List.of("frequentRenterPoints"), names(dataFlow.getParameters(points)));
+        assertEquals(List.of("frequentRenterPoints"), names(dataFlow.getReturns(points)));
+
+        StatementSequence footer = finder.find(53, 54);
+        assertEquals(List.of("result", "totalAmount", "frequentRenterPoints"), names(dataFlow.getParameters(footer)));
+        assertEquals(List.of("result"), names(dataFlow.getReturns(footer)));
+    }
+
+    @Test
+    void variablesDeclaredBeforeTheSequence() throws IOException {
+        MethodDeclaration declaration = loadFlowMethod("OuterVariables", "conditionalWrite");
+        MethodDataFlow dataFlow = new MethodDataFlow(declaration);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        // last = values[0]; declares last in the extracted method, then returns it
+        StatementSequence write = finder.find(11, 11);
+        assertEquals(List.of("values"), names(dataFlow.getParameters(write)));
+        assertEquals(List.of("last"), names(dataFlow.getReturns(write)));
+        assertEquals(List.of("last"), names(dataFlow.getLocals(write)));
+
+        // total = 0; always overwrites total
+        StatementSequence reset = finder.find(9, 9);
+        assertEquals(List.of(), names(dataFlow.getParameters(reset)));
+        assertEquals(List.of("total"), names(dataFlow.getReturns(reset)));
+        assertEquals(List.of("total"), names(dataFlow.getLocals(reset)));
+
+        // the value of total before the if is returned when reset is false, so it is a parameter
+        StatementSequence conditional = finder.find(8, 10);
+        assertEquals(List.of("reset", "total"), names(dataFlow.getParameters(conditional)));
+        assertEquals(List.of("total"), names(dataFlow.getReturns(conditional)));
+        assertEquals(List.of(), names(dataFlow.getLocals(conditional)));
+    }
+
+    @Test
+    void footerReturningFromTheMethod() throws IOException {
+        Method method = GetTargetType.getRefactoringExample();
+        MethodDeclaration declaration = (MethodDeclaration) method.getNode();
+        MethodDataFlow dataFlow = new MethodDataFlow(declaration);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        // the footer lines then return result; the call is returned, so nothing is left to return a variable to
+        StatementSequence footer = finder.find(53, 56);
+        assertTrue(dataFlow.isExtractable(footer));
+        assertTrue(dataFlow.getGraph().hasReturn(footer));
+        assertEquals(List.of(), names(dataFlow.getReturns(footer)));
+
+        StatementSequence footerLines = finder.find(53, 54);
+        assertTrue(dataFlow.isExtractable(footerLines));
+        assertFalse(dataFlow.getGraph().hasReturn(footerLines));
+    }
+
+    @Test
+    void jumpsOutOfTheSequence() throws IOException {
+        MethodDeclaration declaration = loadFlowMethod("Jumps", "firstNegative");
+        MethodDataFlow dataFlow = new MethodDataFlow(declaration);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        // the continue and the break jump to the loop, out of the sequences
+        assertFalse(dataFlow.isExtractable(finder.find(8, 10)));
+        assertFalse(dataFlow.isExtractable(finder.find(11, 12)));
+        assertFalse(dataFlow.isExtractable(finder.find(8, 12)));
+        // the loop holds both jumps
+        assertTrue(dataFlow.isExtractable(finder.find(7, 13)));
+    }
+
+    @Test
+    void returnBeforeTheEnd() throws IOException {
+        MethodDeclaration declaration = loadFlowMethod("Jumps", "sign");
+        MethodDataFlow dataFlow = new MethodDataFlow(declaration);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        // returns -1 or goes on with the declaration of sign
+        StatementSequence early = finder.find(18, 21);
+        assertTrue(dataFlow.getGraph().hasReturn(early));
+        assertFalse(dataFlow.isExtractable(early));
+        // every path returns
+        StatementSequence whole = finder.find(18, 22);
+        assertTrue(dataFlow.isExtractable(whole));
+        assertTrue(dataFlow.getGraph().hasReturn(whole));
+    }
+
+    @Test
+    void exceptionsGoThroughTheCall() throws IOException {
+        MethodDeclaration declaration = loadFlowMethod("Jumps", "parse");
+        MethodDataFlow dataFlow = new MethodDataFlow(declaration);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        // the throw and the statements that may throw reach the catch clause and the finally block, but only the
+        // normal flow leaves the sequence
+        StatementSequence tryBody = finder.find(28, 31);
+        assertTrue(dataFlow.isExtractable(tryBody));
+        assertFalse(dataFlow.getGraph().hasReturn(tryBody));
+        assertEquals(List.of("value"), names(dataFlow.getReturns(tryBody)));
+        assertTrue(dataFlow.isExtractable(finder.find(27, 36)));
+    }
+}
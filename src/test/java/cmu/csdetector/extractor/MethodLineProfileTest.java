@@ -0,0 +1,57 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.metrics.calculators.method.CyclomaticComplexityCalculator;
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.util.GetTargetType;
+import org.eclipse.jdt.core.dom.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MethodLineProfileTest {
+
+    /**
+     * Fields accessed on the lines [from, to], found by visiting the whole method
+     */
+    private Set<String> visitFields(MethodDeclaration method, int from, int to) {
+        CompilationUnit cu = (CompilationUnit) method.getRoot();
+        Set<String> fields = new HashSet<>();
+        method.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                IBinding binding = node.resolveBinding();
+                int line = cu.getLineNumber(node.getStartPosition());
+                if (binding instanceof IVariableBinding && ((IVariableBinding) binding).isField() && from <= line && line <= to) {
+                    fields.add(binding.getKey());
+                }
+                return true;
+            }
+        });
+        return fields;
+    }
+
+    @Test
+    void rangesOfComplexMethod() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        Method method = complexClass.findMethodByName("gradManifests");
+        MethodDeclaration declaration = (MethodDeclaration) method.getNode();
+        MethodLineProfile profile = new MethodLineProfile(declaration);
+
+        assertEquals(new CyclomaticComplexityCalculator().getValue(declaration).intValue(), profile.getCyclomaticComplexity());
+        assertEquals(profile.getCyclomaticComplexity() - 1, profile.getDecisionPoints(profile.getFirstLine(), profile.getLastLine()));
+        // if (rcs[i] instanceof FileSet) { ... } else { ... }
+        assertEquals(2, profile.getDecisionPoints(10, 14));
+        assertEquals(3, profile.getStatementCount(10, 14));
+
+        for (int from = profile.getFirstLine(); from <= profile.getLastLine(); from++) {
+            for (int to = from; to <= profile.getLastLine(); to++) {
+                assertEquals(visitFields(declaration, from, to), profile.getFieldsAccessed(from, to));
+            }
+        }
+    }
+}
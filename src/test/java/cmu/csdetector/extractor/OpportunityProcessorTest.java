@@ -0,0 +1,63 @@
+package cmu.csdetector.extractor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class OpportunityProcessorTest {
+
+    /**
+     * The grouping as computed by comparing every opportunity with all the following ones
+     */
+    private static boolean[] pairwiseGrouping(int[] starts, int[] ends, double[] benefits) {
+        boolean[] grouped = new boolean[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            if (grouped[i]) {
+                continue;
+            }
+            int current = i;
+            for (int j = i + 1; j < starts.length; j++) {
+                if (grouped[j]) {
+                    continue;
+                }
+                int currentSize = ends[current] - starts[current];
+                int otherSize = ends[j] - starts[j];
+                boolean similarSize = Math.abs(currentSize - otherSize) < Math.min(currentSize, otherSize) * .2;
+                int intersection = Math.min(ends[current], ends[j]) - Math.max(starts[current], starts[j]);
+                boolean overlapping = intersection > .1 * Math.max(currentSize, otherSize);
+                if (similarSize && overlapping) {
+                    if (benefits[current] - benefits[j] > .01) {
+                        grouped[j] = true;
+                    } else {
+                        grouped[i] = true;
+                        current = j;
+                    }
+                }
+            }
+        }
+        return grouped;
+    }
+
+    @Test
+    void sameGroupsAsPairwiseComparison() {
+        OpportunityProcessor processor = new OpportunityProcessor(Collections.emptyList());
+        Random random = new Random(45);
+        for (int round = 0; round < 200; round++) {
+            int n = 1 + random.nextInt(300);
+            int lines = 10 + random.nextInt(300);
+            int[] starts = new int[n];
+            int[] ends = new int[n];
+            double[] benefits = new double[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = 1 + random.nextInt(lines);
+                ends[i] = starts[i] + random.nextInt(1 + random.nextInt(60));
+                // few distinct values, so that many benefits are equal or close
+                benefits[i] = random.nextInt(8) * .005;
+            }
+            assertArrayEquals(pairwiseGrouping(starts, ends, benefits), processor.group(starts, ends, benefits));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.util.GetTargetType;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpportunitySearchTest {
+
+    private List<StatementSequence> findSequences(Type type) {
+        StatementVisitor visitor = new StatementVisitor();
+        type.getNode().accept(visitor);
+        SortedMap<Integer, Set<String>> table = visitor.getLineNumToStatementsTable(type.getSourceFile().getCompilationUnit());
+        return new StatementSequenceFinder(type.getNode()).findAll(new StepIterator(table).getAllOpportunities());
+    }
+
+    @Test
+    void bestOpportunitiesFirst() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        List<StatementSequence> sequences = findSequences(complexClass);
+        Map<MethodDeclaration, MethodLineProfile> profiles = new HashMap<>();
+        ToDoubleFunction<StatementSequence> decisions = sequence -> profiles.computeIfAbsent(sequence.getMethod(), MethodLineProfile::new)
+                .getDecisionPoints(sequence.getStartLine(), sequence.getEndLine());
+        // every third sequence cannot be extracted
+        Function<StatementSequence, ExtractedMethod> create = sequence -> sequences.indexOf(sequence) % 3 == 0 ? null : new ExtractedMethod(sequence);
+
+        // the valid sequences of most decision points, the first ones among equal counts
+        List<StatementSequence> valid = sequences.stream().filter(sequence -> sequences.indexOf(sequence) % 3 != 0).collect(Collectors.toList());
+        List<StatementSequence> best = valid.stream()
+                .sorted(Comparator.comparingDouble((StatementSequence sequence) -> -decisions.applyAsDouble(sequence)).thenComparingInt(sequences::indexOf))
+                .limit(5)
+                .sorted(Comparator.comparingInt(sequences::indexOf))
+                .collect(Collectors.toList());
+
+        List<ExtractedMethod> found = new OpportunitySearch(5, Integer.MAX_VALUE).search(sequences, decisions, create, em -> decisions.applyAsDouble(em.getSequence()), UnaryOperator.identity());
+        assertEquals(best, found.stream().map(ExtractedMethod::getSequence).collect(Collectors.toList()));
+
+        List<ExtractedMethod> all = new OpportunitySearch(sequences.size(), Integer.MAX_VALUE).search(sequences, decisions, create, em -> decisions.applyAsDouble(em.getSequence()), UnaryOperator.identity());
+        assertEquals(valid, all.stream().map(ExtractedMethod::getSequence).collect(Collectors.toList()));
+    }
+
+    @Test
+    void budgetPerMethod() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        List<StatementSequence> sequences = findSequences(complexClass);
+        Map<MethodDeclaration, Integer> created = new HashMap<>();
+        Function<StatementSequence, ExtractedMethod> create = sequence -> {
+            synchronized (created) {
+                created.merge(sequence.getMethod(), 1, Integer::sum);
+            }
+            return null;
+        };
+
+        // nothing can be extracted, so the search only stops on the budget
+        List<ExtractedMethod> found = new OpportunitySearch(5, 3).search(sequences, sequence -> sequence.getEndLine() - sequence.getStartLine(), create, em -> 0, UnaryOperator.identity());
+        assertTrue(found.isEmpty());
+        Map<MethodDeclaration, Long> sequencesPerMethod = sequences.stream().collect(Collectors.groupingBy(StatementSequence::getMethod, Collectors.counting()));
+        assertEquals(sequencesPerMethod.keySet(), created.keySet());
+        sequencesPerMethod.forEach((method, count) -> assertEquals(Integer.valueOf(Math.min(3, count.intValue())), created.get(method)));
+    }
+
+    @Test
+    void topSurvivorsOfTheGrouping() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        List<StatementSequence> sequences = findSequences(complexClass);
+        Map<MethodDeclaration, MethodLineProfile> profiles = new HashMap<>();
+        ToDoubleFunction<StatementSequence> decisions = sequence -> profiles.computeIfAbsent(sequence.getMethod(), MethodLineProfile::new)
+                .getDecisionPoints(sequence.getStartLine(), sequence.getEndLine());
+        Function<StatementSequence, ExtractedMethod> create = sequence -> new ExtractedMethod(sequence);
+        // every other sequence is grouped with another one
+        List<Integer> groupings = new ArrayList<>();
+        UnaryOperator<List<ExtractedMethod>> group = opportunities -> {
+            groupings.add(opportunities.size());
+            return opportunities.stream().filter(em -> sequences.indexOf(em.getSequence()) % 2 == 1).collect(Collectors.toList());
+        };
+
+        // the survivors of most decision points, the first ones among equal counts
+        List<StatementSequence> best = sequences.stream()
+                .filter(sequence -> sequences.indexOf(sequence) % 2 == 1)
+                .sorted(Comparator.comparingDouble((StatementSequence sequence) -> -decisions.applyAsDouble(sequence)).thenComparingInt(sequences::indexOf))
+                .limit(5)
+                .sorted(Comparator.comparingInt(sequences::indexOf))
+                .collect(Collectors.toList());
+
+        List<ExtractedMethod> found = new OpportunitySearch(5, Integer.MAX_VALUE).search(sequences, decisions, create, em -> decisions.applyAsDouble(em.getSequence()), group);
+        assertEquals(best, found.stream().map(ExtractedMethod::getSequence).collect(Collectors.toList()));
+        // the grouped ones are replaced by the next batches
+        assertTrue(groupings.size() > 1);
+
+        // without limit, everything is created and grouped at once
+        groupings.clear();
+        List<ExtractedMethod> all = new OpportunitySearch(Integer.MAX_VALUE, Integer.MAX_VALUE).search(sequences, decisions, create, em -> decisions.applyAsDouble(em.getSequence()), group);
+        assertEquals(List.of(sequences.size()), groupings);
+        assertEquals(group.apply(sequences.stream().map(create).collect(Collectors.toList())).stream().map(ExtractedMethod::getSequence).collect(Collectors.toList()),
+                all.stream().map(ExtractedMethod::getSequence).collect(Collectors.toList()));
+    }
+
+    @Test
+    void boundAboveTheBenefit() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        List<StatementSequence> sequences = findSequences(complexClass);
+        Map<MethodDeclaration, MethodLineProfile> profiles = new HashMap<>();
+        ToDoubleFunction<StatementSequence> decisions = sequence -> profiles.computeIfAbsent(sequence.getMethod(), MethodLineProfile::new)
+                .getDecisionPoints(sequence.getStartLine(), sequence.getEndLine());
+        // the bound overestimates the benefit of most sequences, so they are not created in the order of their benefit
+        ToDoubleFunction<StatementSequence> bound = sequence -> decisions.applyAsDouble(sequence) + sequences.indexOf(sequence) % 4;
+        Set<StatementSequence> created = Collections.synchronizedSet(new HashSet<>());
+        Function<StatementSequence, ExtractedMethod> create = sequence -> {
+            created.add(sequence);
+            return new ExtractedMethod(sequence);
+        };
+        ToDoubleFunction<ExtractedMethod> benefit = em -> decisions.applyAsDouble(em.getSequence());
+
+        // the best benefits of all the sequences, the ones of equal benefit being interchangeable
+        List<Double> best = sequences.stream()
+                .map(decisions::applyAsDouble)
+                .sorted(Comparator.reverseOrder())
+                .limit(5)
+                .collect(Collectors.toList());
+
+        List<ExtractedMethod> found = new OpportunitySearch(5, Integer.MAX_VALUE).search(sequences, bound, create, benefit, UnaryOperator.identity());
+        assertEquals(best, found.stream().map(benefit::applyAsDouble).sorted(Comparator.reverseOrder()).collect(Collectors.toList()));
+        // the sequences whose bound is below the fifth benefit are never created
+        double fifth = best.get(best.size() - 1);
+        assertTrue(created.size() < sequences.size());
+        sequences.stream().filter(sequence -> bound.applyAsDouble(sequence) < fifth).forEach(sequence -> assertFalse(created.contains(sequence)));
+    }
+}
@@ -6,9 +6,92 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.util.*;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class StepIteratorTest {
+    /**
+     * The opportunities as computed with a dense matrix indexed by line number, one step at a time
+     */
+    private static Set<List<Integer>> denseOpportunities(SortedMap<Integer, Set<String>> line2vars) {
+        int startline = line2vars.firstKey();
+        int endline = line2vars.lastKey();
+        List<String> vars = new ArrayList<>();
+        line2vars.values().forEach(set -> set.stream().filter(v -> !vars.contains(v)).forEach(vars::add));
+        int[][] matrix = new int[vars.size()][endline + 1];
+        line2vars.forEach((line, set) -> set.forEach(v -> matrix[vars.indexOf(v)][line] = 1));
+
+        Set<List<Integer>> set = new HashSet<>();
+        for (int step = 1; step < endline - startline; step++) {
+            List<List<Integer>> all = new ArrayList<>();
+            for (int[] row : matrix) {
+                List<List<Integer>> intervals = new ArrayList<>();
+                List<Integer> last = Arrays.asList(-step, -step);
+                for (int j = 1; j <= endline + 1 - step; j++) {
+                    if (row[j] == 1) {
+                        if (last.get(1) < j - step) {
+                            intervals.add(last);
+                            last = Arrays.asList(j, j);
+                        } else {
+                            last.set(1, j);
+                        }
+                    }
+                }
+                intervals.add(last);
+                intervals.remove(0);
+                for (List<Integer> in : intervals) {
+                    if (in.get(1) - in.get(0) >= step) {
+                        all.add(in);
+                    }
+                }
+            }
+            all.sort(Comparator.comparingInt((List<Integer> in) -> in.get(0)).thenComparingInt(in -> in.get(1)));
+            List<List<Integer>> merged = new ArrayList<>();
+            for (List<Integer> in : all) {
+                if (merged.isEmpty() || merged.get(merged.size() - 1).get(1) < in.get(0)) {
+                    merged.add(Arrays.asList(in.get(0), in.get(1)));
+                } else {
+                    List<Integer> last = merged.get(merged.size() - 1);
+                    last.set(1, Math.max(last.get(1), in.get(1)));
+                }
+            }
+            set.addAll(merged);
+        }
+        return set;
+    }
+
+    private static SortedMap<Integer, Set<String>> randomTable(Random random, int firstLine, int lines, int vars) {
+        SortedMap<Integer, Set<String>> table = new TreeMap<>();
+        for (int line = firstLine; line < firstLine + lines; line++) {
+            if (line == firstLine || line == firstLine + lines - 1 || random.nextInt(4) > 0) {
+                Set<String> set = new HashSet<>();
+                for (int v = random.nextInt(3); v >= 0; v--) {
+                    set.add("v" + random.nextInt(vars));
+                }
+                table.put(line, set);
+            }
+        }
+        return table;
+    }
+
+    @Test
+    void sameOpportunitiesAsDenseMatrix() throws IOException {
+        for (var smellyTarget : List.of(GetTargetType.getComplexClass(), GetTargetType.getRefactoringExample())) {
+            StatementVisitor visitor = new StatementVisitor();
+            smellyTarget.getNode().accept(visitor);
+            SortedMap<Integer, Set<String>> table = visitor.getLineNumToStatementsTable(smellyTarget.getSourceFile().getCompilationUnit());
+            // same opportunities, inserted in the same order
+            assertEquals(new ArrayList<>(denseOpportunities(table)), new ArrayList<>(new StepIterator(table).getAllOpportunities()));
+        }
+
+        // large sets may turn their colliding bins into trees, whose order depends on identity hashes, so only the elements are compared
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            SortedMap<Integer, Set<String>> table = randomTable(random, 1 + random.nextInt(300), 2 + random.nextInt(i < 45 ? 120 : 700), 1 + random.nextInt(12));
+            assertEquals(denseOpportunities(table), new StepIterator(table).getAllOpportunities());
+        }
+    }
+
     private void prettyPrintOpportunities(Set<List<Integer>> opportunitySet) {
         opportunitySet.stream()
             // sort by the first line number, then by the last line number
@@ -0,0 +1,43 @@
+package cmu.csdetector.extractor;
+
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.resources.TypeRegistry;
+import cmu.csdetector.util.GetTargetType;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TargetCandidateFinderTest {
+
+    private List<String> names(List<Type> types) {
+        return types.stream().map(Type::getFullyQualifiedName).collect(Collectors.toList());
+    }
+
+    @Test
+    void mostReferencedClasses() throws IOException {
+        Method method = GetTargetType.getRefactoringExample();
+        MethodDeclaration declaration = (MethodDeclaration) method.getNode();
+        Type customer = TypeRegistry.getInstance().getType("Customer");
+        MethodDataFlow dataFlow = new MethodDataFlow(declaration);
+        StatementSequenceFinder finder = new StatementSequenceFinder(declaration);
+
+        // the switch on the price code, then totalAmount += thisAmount;
+        // each is a Rental, and the calls each.daysRented() and each.getTape().getMovie().priceCode() go through the three classes
+        StatementSequence amounts = finder.find(24, 40);
+        TargetCandidateFinder candidateFinder = new TargetCandidateFinder(customer, TargetCandidateFinder.DEFAULT_MAX_CANDIDATES);
+        assertEquals(List.of("Rental", "Movie", "Tape"), names(candidateFinder.findCandidates(amounts, dataFlow.getParameters(amounts))));
+
+        TargetCandidateFinder topTwo = new TargetCandidateFinder(customer, 2);
+        assertEquals(List.of("Rental", "Movie"), names(topTwo.findCandidates(amounts, dataFlow.getParameters(amounts))));
+
+        // the footer only references strings and numbers
+        StatementSequence footer = finder.find(53, 54);
+        assertEquals(List.of(), names(candidateFinder.findCandidates(footer, dataFlow.getParameters(footer))));
+    }
+}
@@ -0,0 +1,102 @@
+package cmu.csdetector.extractor.evaluator;
+
+import cmu.csdetector.metrics.calculators.type.LCOM3Calculator;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.util.TypeLoader;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnalyticLCOMEvaluatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    /**
+     * LCOM of the target classes once the opportunities of Customer.statement are moved to them, as measured on the
+     * refactored sources
+     */
+    private static final Map<Integer, Map<String, Double>> REFACTORED_TARGET_LCOM = Map.of(
+            20, Map.of("Movie", 0.84, "Rental", 2.0 / 3, "Registrar", 0.7, "Tape", 0.75),
+            46, Map.of("Movie", 0.92, "Rental", 2.0 / 3, "Registrar", 0.7, "Tape", 0.75),
+            49, Map.of("Movie", 0.96, "Rental", 2.0 / 3, "Registrar", 0.7, "Tape", 0.75));
+
+    @Test
+    void sameLCOMAsAppliedRefactoring() throws IOException {
+        File testPath = new File("examples/RefactoringExample/src/main/java");
+        List<Type> types = TypeLoader.loadAllFromDir(testPath);
+        Type customer = types.stream().filter(t -> t.getFullyQualifiedName().equals("Customer")).findFirst().get();
+        TypeDeclaration source = customer.getNodeAsTypeDeclaration();
+        double sourceLCOM = new LCOM3Calculator().getValue(source);
+
+        ClassCohesionProfile sourceProfile = new ClassCohesionProfile(source);
+        int[][] opportunities = {{20, 47}, {46, 50}, {49, 54}};
+        for (int[] opportunity : opportunities) {
+            for (Type target : types) {
+                if (target == customer) {
+                    continue;
+                }
+                TypeDeclaration targetDeclaration = target.getNodeAsTypeDeclaration();
+                AnalyticLCOMEvaluator analytic = new AnalyticLCOMEvaluator(sourceProfile, new ClassCohesionProfile(targetDeclaration), opportunity[0], opportunity[1]);
+                analytic.evaluate();
+
+                double targetLCOM = new LCOM3Calculator().getValue(targetDeclaration);
+                double refactoredTargetLCOM = REFACTORED_TARGET_LCOM.get(opportunity[0]).get(target.getFullyQualifiedName());
+                assertEquals(sourceLCOM, analytic.getOriginalSourceClassLCOM(), DELTA);
+                assertEquals(targetLCOM, analytic.getOriginalTargetClassLCOM(), DELTA);
+                // the fields accessed by the extracted lines are also accessed by the rest of statement()
+                assertEquals(sourceLCOM, analytic.getRefactoredSourceClassLCOM(), DELTA);
+                assertEquals(refactoredTargetLCOM, analytic.getRefactoredTargetClassLCOM(), DELTA);
+                assertEquals(refactoredTargetLCOM - targetLCOM, analytic.getReduction(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    void evaluateConcurrentlyFromSharedProfiles() throws IOException {
+        File testPath = new File("examples/RefactoringExample/src/main/java");
+        List<Type> types = TypeLoader.loadAllFromDir(testPath);
+        Type customer = types.stream().filter(t -> t.getFullyQualifiedName().equals("Customer")).findFirst().get();
+        Map<Type, Integer> declarationsBefore = new HashMap<>();
+        Map<Type, ClassCohesionProfile> profiles = new HashMap<>();
+        for (Type type : types) {
+            declarationsBefore.put(type, type.getNodeAsTypeDeclaration().bodyDeclarations().size());
+            profiles.put(type, new ClassCohesionProfile(type.getNodeAsTypeDeclaration()));
+        }
+        List<Type> targets = types.stream().filter(t -> t != customer).collect(Collectors.toList());
+
+        // every move of every opportunity, all evaluated at once from the same profiles
+        int[][] opportunities = {{20, 47}, {46, 50}, {49, 54}};
+        List<Double> sequential = new ArrayList<>();
+        for (int[] opportunity : opportunities) {
+            for (Type target : targets) {
+                AnalyticLCOMEvaluator evaluator = new AnalyticLCOMEvaluator(profiles.get(customer), profiles.get(target), opportunity[0], opportunity[1]);
+                evaluator.evaluate();
+                sequential.add(evaluator.getReduction());
+            }
+        }
+        List<Double> concurrent = IntStream.range(0, opportunities.length * targets.size()).parallel()
+                .mapToObj(i -> {
+                    int[] opportunity = opportunities[i / targets.size()];
+                    AnalyticLCOMEvaluator evaluator = new AnalyticLCOMEvaluator(profiles.get(customer), profiles.get(targets.get(i % targets.size())), opportunity[0], opportunity[1]);
+                    evaluator.evaluate();
+                    return evaluator.getReduction();
+                })
+                .collect(Collectors.toList());
+
+        assertEquals(sequential, concurrent);
+        // the loaded declarations are left untouched
+        for (Type type : types) {
+            assertEquals((int) declarationsBefore.get(type), type.getNodeAsTypeDeclaration().bodyDeclarations().size());
+        }
+    }
+}
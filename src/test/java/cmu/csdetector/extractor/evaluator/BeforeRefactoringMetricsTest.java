@@ -0,0 +1,33 @@
+package cmu.csdetector.extractor.evaluator;
+
+import cmu.csdetector.metrics.calculators.method.CyclomaticComplexityCalculator;
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.util.GetTargetType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BeforeRefactoringMetricsTest {
+
+    @Test
+    void computedOncePerClass() throws IOException {
+        Type complexClass = GetTargetType.getComplexClass();
+        BeforeRefactoringMetrics metrics = BeforeRefactoringMetrics.getInstance();
+
+        Map<String, Double> complexities = metrics.getMethodComplexities(complexClass);
+        assertEquals(complexClass.getMethods().size(), complexities.size());
+        for (Method method : complexClass.getMethods()) {
+            assertEquals(new CyclomaticComplexityCalculator().getValue(method.getNode()), complexities.get(method.getFullyQualifiedName()));
+        }
+        assertEquals(Double.valueOf(12.0), complexities.get("paper.example.ComplexClass.gradManifests"));
+        assertSame(complexities, metrics.getMethodComplexities(complexClass));
+
+        ClassCohesionProfile profile = metrics.getCohesionProfile(complexClass);
+        assertSame(complexClass.getNodeAsTypeDeclaration(), profile.getType());
+        assertSame(profile, metrics.getCohesionProfile(complexClass));
+    }
+}
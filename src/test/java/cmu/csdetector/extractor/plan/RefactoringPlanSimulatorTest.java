@@ -0,0 +1,114 @@
+package cmu.csdetector.extractor.plan;
+
+import cmu.csdetector.extractor.evaluator.AnalyticLCOMEvaluator;
+import cmu.csdetector.extractor.evaluator.ClassCohesionProfile;
+import cmu.csdetector.metrics.MetricName;
+import cmu.csdetector.metrics.calculators.method.CyclomaticComplexityCalculator;
+import cmu.csdetector.metrics.calculators.type.LCOM2Calculator;
+import cmu.csdetector.metrics.calculators.type.LCOM3Calculator;
+import cmu.csdetector.metrics.calculators.type.TCCMetricValueCalculator;
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.util.TypeLoader;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefactoringPlanSimulatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    private Type findType(List<Type> types, String fullyQualifiedName) {
+        return types.stream().filter(t -> t.getFullyQualifiedName().equals(fullyQualifiedName)).findFirst().get();
+    }
+
+    @Test
+    void initialMetricsAsCalculated() throws IOException {
+        List<Type> types = TypeLoader.loadAllFromDir(new File("examples/RefactoringExample/src/main/java"));
+        RefactoringPlanSimulator simulator = new RefactoringPlanSimulator();
+        for (Type type : types) {
+            TypeDeclaration declaration = type.getNodeAsTypeDeclaration();
+            Map<MetricName, Double> metrics = simulator.getMetrics(type);
+            double wmc = 0;
+            double maxCC = 0;
+            for (Method method : type.getMethods()) {
+                double cc = new CyclomaticComplexityCalculator().getValue(method.getNode());
+                wmc += cc;
+                maxCC = Math.max(maxCC, cc);
+            }
+            assertEquals(wmc, metrics.get(MetricName.WMC), DELTA);
+            assertEquals(maxCC, metrics.get(MetricName.CC), DELTA);
+            assertEquals(new LCOM2Calculator().getValue(declaration), metrics.get(MetricName.LCOM2), DELTA);
+            assertEquals(new LCOM3Calculator().getValue(declaration), metrics.get(MetricName.LCOM3), DELTA);
+            assertEquals(new TCCMetricValueCalculator().getValue(declaration), metrics.get(MetricName.TCC), DELTA);
+        }
+    }
+
+    @Test
+    void extractThenMove() throws IOException {
+        List<Type> types = TypeLoader.loadAllFromDir(new File("examples/RefactoringExample/src/main/java"));
+        Type customer = findType(types, "Customer");
+        Type rental = findType(types, "Rental");
+        RefactoringPlanSimulator simulator = new RefactoringPlanSimulator();
+        Map<MetricName, Double> customerBefore = simulator.getMetrics(customer);
+        Map<MetricName, Double> rentalBefore = simulator.getMetrics(rental);
+        // getTape, getMovie, priceCode, daysRented, getName, getCustomer, addCustomer
+        assertEquals(7.0, customerBefore.get(MetricName.CINT), DELTA);
+        assertEquals(0.0, rentalBefore.get(MetricName.CINT), DELTA);
+
+        // the switch computing the amount of a rental
+        StepResult extract = simulator.apply(new ExtractMethodStep(customer, "statement", 24, 39, "amountFor"));
+        assertEquals(1, extract.getAffectedClasses().size());
+        assertEquals(1.0, extract.getDelta(MetricName.WMC), DELTA);
+        SimulatedClass simulatedCustomer = simulator.getSimulatedClass(customer);
+        // case, case, case, if, if
+        assertEquals(6, simulatedCustomer.findMethod("amountFor").getCyclomaticComplexity());
+        assertEquals(customerBefore.get(MetricName.CC) - 5, simulatedCustomer.findMethod("statement").getCyclomaticComplexity(), DELTA);
+        // the statement still calls every method the extracted lines call
+        assertEquals(0.0, extract.getDelta(MetricName.CINT), DELTA);
+
+        StepResult move = simulator.apply(new MoveMethodStep(customer, "amountFor", rental));
+        assertEquals(2, simulator.getStepCount());
+        assertEquals(6.0, move.getAfter("Rental").get(MetricName.CC), DELTA);
+        // the statement calls Rental.amountFor, which calls Tape.getMovie and Movie.priceCode
+        assertEquals(1.0, move.getDelta("Customer", MetricName.CINT), DELTA);
+        assertEquals(2.0, move.getAfter("Rental").get(MetricName.CINT), DELTA);
+
+        // extracting then moving the lines is the move of an extracted method the analytic evaluator assumes
+        AnalyticLCOMEvaluator analytic = new AnalyticLCOMEvaluator(new ClassCohesionProfile(customer.getNodeAsTypeDeclaration()), new ClassCohesionProfile(rental.getNodeAsTypeDeclaration()), 24, 39);
+        analytic.evaluate();
+        assertEquals(analytic.getRefactoredSourceClassLCOM(), move.getAfter("Customer").get(MetricName.LCOM3), DELTA);
+        assertEquals(analytic.getRefactoredTargetClassLCOM(), move.getAfter("Rental").get(MetricName.LCOM3), DELTA);
+
+        simulator.undo();
+        simulator.undo();
+        assertEquals(customerBefore, simulator.getMetrics(customer));
+        assertEquals(rentalBefore, simulator.getMetrics(rental));
+        assertNull(simulatedCustomer.findMethod("amountFor"));
+    }
+
+    @Test
+    void previewLeavesPlanUnchanged() throws IOException {
+        List<Type> types = TypeLoader.loadAllFromDir(new File("examples/RefactoringExample/src/main/java"));
+        Type customer = findType(types, "Customer");
+        RefactoringPlanSimulator simulator = new RefactoringPlanSimulator();
+        simulator.apply(new ExtractMethodStep(customer, "statement", 52, 54, "footer"));
+        Map<MetricName, Double> planned = simulator.getMetrics(customer);
+
+        StepResult preview = simulator.preview(new ExtractMethodStep(customer, "statement", 24, 39, "amountFor"));
+        assertEquals(1.0, preview.getDelta(MetricName.WMC), DELTA);
+        assertEquals(1, simulator.getStepCount());
+        assertEquals(planned, simulator.getMetrics(customer));
+
+        // the footer lines are no longer in the statement
+        assertThrows(IllegalArgumentException.class, () -> simulator.apply(new ExtractMethodStep(customer, "statement", 50, 54, "tail")));
+        assertEquals(1, simulator.getStepCount());
+        assertEquals(planned, simulator.getMetrics(customer));
+    }
+}
@@ -0,0 +1,60 @@
+package cmu.csdetector.resources;
+
+import cmu.csdetector.util.TypeLoader;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeRegistryTest {
+
+    private List<Type> loadTypes() throws IOException {
+        return TypeLoader.loadAllFromDir(new File("src/test/java/cmu/csdetector/dummy/lcom"));
+    }
+
+    private Type find(List<Type> types, String fullyQualifiedName) {
+        return types.stream().filter(t -> t.getFullyQualifiedName().equals(fullyQualifiedName)).findFirst().get();
+    }
+
+    @Test
+    void indexLoadedTypes() throws IOException {
+        List<Type> types = loadTypes();
+        TypeRegistry registry = TypeRegistry.getInstance();
+        Type son = find(types, "cmu.csdetector.dummy.lcom.DummySon");
+
+        assertSame(son, registry.getType("cmu.csdetector.dummy.lcom.DummySon"));
+        assertTrue(registry.getTypesBySimpleName("DummySon").contains(son));
+        assertTrue(registry.getTypesInPackage("cmu.csdetector.dummy.lcom").containsAll(types));
+
+        Method method = son.findMethodByName("printHello");
+        assertNotNull(method);
+        assertEquals("cmu.csdetector.dummy.lcom.DummySon.printHello", method.getFullyQualifiedName());
+        assertSame(method, registry.getMethod(method.getBinding().getKey()));
+        // methods are only found in the type declaring them
+        assertNull(son.findMethodByName("printTest"));
+        assertNull(find(types, "cmu.csdetector.dummy.lcom.DummyDad").findMethodByName("printHello"));
+    }
+
+    @Test
+    void replaceReloadedTypes() throws IOException {
+        List<Type> first = loadTypes();
+        List<Type> second = loadTypes();
+        TypeRegistry registry = TypeRegistry.getInstance();
+        Type son = find(second, "cmu.csdetector.dummy.lcom.DummySon");
+
+        assertSame(son, registry.getType("cmu.csdetector.dummy.lcom.DummySon"));
+        assertEquals(1, registry.getTypesBySimpleName("DummySon").size());
+        assertFalse(registry.getTypesInPackage("cmu.csdetector.dummy.lcom").contains(find(first, "cmu.csdetector.dummy.lcom.DummySon")));
+
+        // the replaced type still finds its own methods, the registry only holds the ones of the new type
+        Method replacedMethod = find(first, "cmu.csdetector.dummy.lcom.DummySon").findMethodByName("printHello");
+        assertNotNull(replacedMethod);
+        Method method = son.findMethodByName("printHello");
+        assertNotSame(replacedMethod, method);
+        assertSame(method, registry.getMethod(method.getBinding().getKey()));
+        assertFalse(first.stream().flatMap(type -> type.getMethods().stream()).anyMatch(m -> m.getBinding() != null && registry.getMethod(m.getBinding().getKey()) == m));
+    }
+}
@@ -0,0 +1,67 @@
+package cmu.csdetector.resources.loader;
+
+import cmu.csdetector.metrics.MetricName;
+import cmu.csdetector.metrics.calculators.AggregateMetricValues;
+import cmu.csdetector.resources.Method;
+import cmu.csdetector.resources.Type;
+import cmu.csdetector.smells.MethodLevelSmellDetector;
+import cmu.csdetector.smells.Smell;
+import cmu.csdetector.util.GenericCollector;
+import cmu.csdetector.util.TypeLoader;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProjectSnapshotTest {
+
+    private List<String> detectFeatureEnvy(Method method) {
+        List<Smell> smells = new MethodLevelSmellDetector().detect(method);
+        return smells.stream().map(Smell::getReason).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void restoreSnapshot() throws IOException {
+        File testPath = new File("src/test/java/cmu/csdetector/dummy/smells");
+        List<Type> types = TypeLoader.loadAllFromDir(testPath);
+        GenericCollector.collectAll(types);
+        Double averageCC = AggregateMetricValues.getInstance().getAverageValue(MetricName.CC);
+
+        File snapshotFile = File.createTempFile("project", ".snapshot");
+        snapshotFile.deleteOnExit();
+        new ProjectSnapshotWriter(snapshotFile).write(types);
+
+        List<Type> restored = new ArrayList<>();
+        for (SourceFile sourceFile : new ProjectSnapshotReader(snapshotFile).getLoadedSourceFiles()) {
+            restored.addAll(sourceFile.getTypes());
+        }
+
+        assertEquals(averageCC, AggregateMetricValues.getInstance().getAverageValue(MetricName.CC));
+        assertEquals(types.size(), restored.size());
+        for (int i = 0; i < types.size(); i++) {
+            Type type = types.get(i);
+            Type restoredType = restored.get(i);
+            assertEquals(type.getFullyQualifiedName(), restoredType.getFullyQualifiedName());
+            assertEquals(type.getKind(), restoredType.getKind());
+            assertEquals(type.getStartLineNumber(), restoredType.getStartLineNumber());
+            assertEquals(type.getEndLineNumber(), restoredType.getEndLineNumber());
+            assertEquals(type.getMetricValues(), restoredType.getMetricValues());
+            assertEquals(type.getSourceFile().getFileRelativePath(), restoredType.getSourceFile().getFileRelativePath());
+
+            assertEquals(type.getMethods().size(), restoredType.getMethods().size());
+            for (int j = 0; j < type.getMethods().size(); j++) {
+                Method method = type.getMethods().get(j);
+                Method restoredMethod = restoredType.getMethods().get(j);
+                assertEquals(method.getFullyQualifiedName(), restoredMethod.getFullyQualifiedName());
+                assertEquals(method.getParametersTypes(), restoredMethod.getParametersTypes());
+                assertEquals(method.getMetricValues(), restoredMethod.getMetricValues());
+                assertEquals(detectFeatureEnvy(method), detectFeatureEnvy(restoredMethod));
+            }
+        }
+    }
+}